@@ -0,0 +1,36 @@
+package org.application.bookstorage.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.application.bookstorage.service.version.CatalogVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Условные GET-запросы к каталогу: ответ получает ETag текущей версии каталога,
+ * а запрос с совпадающим If-None-Match получает 304 до вызова контроллера —
+ * без запросов к базе и сериализации.
+ * ETag берётся до выполнения запроса к базе, поэтому он никогда не новее данных в ответе.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogEtagInterceptor implements HandlerInterceptor {
+
+    private final CatalogVersion catalogVersion;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            return true;
+        }
+        // Браузер должен перепроверять ответ при каждом запросе, а не брать его из кэша по эвристике
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        // checkNotModified выставляет заголовок ETag и при совпадении — статус 304
+        return !new ServletWebRequest(request, response).checkNotModified(catalogVersion.etag());
+    }
+}
@@ -0,0 +1,149 @@
+package org.application.bookstorage.config;
+
+import org.application.bookstorage.dao.Author;
+import org.application.bookstorage.dao.Authorship;
+import org.application.bookstorage.dao.Book;
+import org.application.bookstorage.dao.BookStyles;
+import org.application.bookstorage.dao.PublishingCompany;
+import org.application.bookstorage.dao.Styles;
+import org.hibernate.CacheMode;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.cache.spi.access.CollectionDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Сброс кэшированных коллекций при изменении их элементов (вместо
+ * hibernate.cache.auto_evict_collection_cache): сохранение книги сбрасывает PublishingCompany.books
+ * её издательства, авторства — Author.authorships автора, связи с жанром — Styles.bookStyles жанра.
+ *
+ * Запись коллекции блокируется мягкой блокировкой (SoftLock) стратегии READ_WRITE, как при изменении
+ * самой коллекции: пока транзакция не завершена, кэш не отдаёт коллекцию и не принимает её от
+ * параллельных чтений, а после завершения принимает только коллекции, прочитанные позже.
+ * Встроенный auto_evict_collection_cache на каждый элемент блокирует весь регион и откладывает
+ * его очистку до конца транзакции — сбрасываются коллекции всех владельцев, а отложенные
+ * действия копятся в сессии по одному на строку.
+ *
+ * Сессии с CacheMode.IGNORE пропускаются: в этом режиме пакетный импорт CSV не работает с кэшем,
+ * а после фиксации импорта все регионы очищаются целиком (CsvService.clearDatabase).
+ */
+public class CollectionCacheEvictionListener
+        implements Integrator, PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String PUBLISHER_BOOKS = PublishingCompany.class.getName() + ".books";
+    private static final String AUTHOR_AUTHORSHIPS = Author.class.getName() + ".authorships";
+    private static final String STYLE_BOOK_STYLES = Styles.class.getName() + ".bookStyles";
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        evict(event.getEntity(), null, event.getPersister(), event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        evict(event.getEntity(), event.getOldState(), event.getPersister(), event.getSession());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        evict(event.getEntity(), null, event.getPersister(), event.getSession());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void evict(Object entity, Object[] oldState, EntityPersister persister, EventSource session) {
+        if (session.getCacheMode() == CacheMode.IGNORE) {
+            return;
+        }
+        if (entity instanceof Book book) {
+            evict(session, PUBLISHER_BOOKS, book.getPublishingCompany());
+            if (oldState != null) {
+                // Книга могла перейти к другому издательству — сбрасываются обе коллекции
+                evict(session, PUBLISHER_BOOKS, oldState[persister.getPropertyIndex("publishingCompany")]);
+            }
+        } else if (entity instanceof Authorship authorship && authorship.getId() != null) {
+            evictById(session, AUTHOR_AUTHORSHIPS, authorship.getId().getAuthorId());
+        } else if (entity instanceof BookStyles bookStyles && bookStyles.getId() != null) {
+            evictById(session, STYLE_BOOK_STYLES, bookStyles.getId().getStyle());
+        }
+    }
+
+    private void evict(EventSource session, String role, Object owner) {
+        if (owner != null) {
+            // Владелец может быть неинициализированным прокси — идентификатор читается без загрузки
+            evictById(session, role, session.getFactory().getPersistenceUnitUtil().getIdentifier(owner));
+        }
+    }
+
+    private void evictById(EventSource session, String role, Object ownerId) {
+        if (ownerId == null || !lockedInTransaction().add(new OwnerKey(role, ownerId))) {
+            return;
+        }
+        CollectionPersister persister = session.getFactory().getMappingMetamodel().getCollectionDescriptor(role);
+        if (!persister.hasCache()) {
+            return;
+        }
+        CollectionDataAccess access = persister.getCacheAccessStrategy();
+        Object cacheKey = access.generateCacheKey(ownerId, persister, session.getFactory(), session.getTenantIdentifier());
+        SoftLock lock = access.lockItem(session, cacheKey, null);
+        // Блокировка снимается при завершении транзакции сессии — и при фиксации, и при откате
+        session.getActionQueue().registerProcess((success, s) -> access.unlockItem(s, cacheKey, lock));
+    }
+
+    // Коллекции, уже заблокированные в текущей транзакции (вне транзакции Spring — пустой набор)
+    private Set<OwnerKey> lockedInTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new HashSet<>();
+        }
+        @SuppressWarnings("unchecked")
+        Set<OwnerKey> keys = (Set<OwnerKey>) TransactionSynchronizationManager.getResource(this);
+        if (keys == null) {
+            keys = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CollectionCacheEvictionListener.this);
+                }
+            });
+        }
+        return keys;
+    }
+
+    private record OwnerKey(String role, Object ownerId) {
+    }
+}
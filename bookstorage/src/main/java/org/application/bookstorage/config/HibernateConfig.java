@@ -0,0 +1,20 @@
+package org.application.bookstorage.config;
+
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class HibernateConfig {
+
+    // Сброс кэшированных коллекций выполняет CollectionCacheEvictionListener
+    // (hibernate.cache.auto_evict_collection_cache выключен в application.properties)
+    @Bean
+    public HibernatePropertiesCustomizer collectionCacheEvictionCustomizer() {
+        IntegratorProvider integrators = () -> List.of(new CollectionCacheEvictionListener());
+        return properties -> properties.put("hibernate.integrator_provider", integrators);
+    }
+}
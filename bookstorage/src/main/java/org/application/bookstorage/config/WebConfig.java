@@ -0,0 +1,20 @@
+package org.application.bookstorage.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CatalogEtagInterceptor catalogEtagInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // ETag по версии каталога для чтения книг, авторов, издательств и жанров
+        registry.addInterceptor(catalogEtagInterceptor)
+                .addPathPatterns("/api/books/**", "/api/authors/**", "/api/publishing-companies/**", "/api/styles/**");
+    }
+}
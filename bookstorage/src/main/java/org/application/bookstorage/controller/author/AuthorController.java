@@ -4,7 +4,10 @@ import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.Author;
 import org.application.bookstorage.dto.AuthorDTO;
 import org.application.bookstorage.service.author.AuthorService;
+import org.application.bookstorage.service.book.BookService;
+import org.application.bookstorage.service.cache.CatalogResponseCache;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,6 +26,8 @@ import org.slf4j.LoggerFactory;
 public class AuthorController {
 
     private final AuthorService authorService;
+    private final BookService bookService;
+    private final CatalogResponseCache responseCache;
 
     // LOGGING ADDED
     private static final Logger logger = LoggerFactory.getLogger(AuthorController.class);
@@ -62,6 +67,80 @@ public class AuthorController {
                 });
     }
 
+    /**
+     * Книги автора.
+     * Метод: GET
+     * URL: /api/authors/{id}/books?search=..&sort_column=..&sort_order=..
+     * Сортировка и поиск — как в /api/books.
+     */
+    @GetMapping("/{id}/books")
+    public ResponseEntity<byte[]> getAuthorBooks(
+            @PathVariable int id,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, name = "sort_column") String sortColumn,
+            @RequestParam(required = false, name = "sort_order") String sortOrder) {
+        // LOGGING ADDED
+        logger.info("Получен запрос на получение книг автора ID={}. search={}, sort_column={}, sort_order={}",
+                id, search, sortColumn, sortOrder);
+
+        if (authorService.getAuthorById(id).isEmpty()) {
+            // LOGGING ADDED
+            logger.warn("Автор с ID {} не найден", id);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            byte[] body = responseCache.getBooks("author-books", id, search, sortColumn, sortOrder, null, null,
+                    query -> bookService.getBooksByAuthor(id, query, sortColumn, sortOrder));
+
+            // LOGGING ADDED
+            logger.info("Книги автора ID={} возвращены. Размер ответа: {} байт", id, body.length);
+
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при получении книг автора ID={}: {}", id, e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Книги автора постранично (keyset-пагинация).
+     * Метод: GET
+     * URL: /api/authors/{id}/books?limit=..&after=..
+     * Ответ: books — книги страницы, nextCursor — значение after для следующей страницы (null на последней).
+     */
+    @GetMapping(value = "/{id}/books", params = "limit")
+    public ResponseEntity<byte[]> getAuthorBooksPage(
+            @PathVariable int id,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, name = "sort_column") String sortColumn,
+            @RequestParam(required = false, name = "sort_order") String sortOrder,
+            @RequestParam int limit,
+            @RequestParam(required = false) String after) {
+        // LOGGING ADDED
+        logger.info("Получен запрос на страницу книг автора ID={}. search={}, sort_column={}, sort_order={}, limit={}, after={}",
+                id, search, sortColumn, sortOrder, limit, after);
+
+        if (authorService.getAuthorById(id).isEmpty()) {
+            // LOGGING ADDED
+            logger.warn("Автор с ID {} не найден", id);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            byte[] body = responseCache.getBooks("author-books", id, search, sortColumn, sortOrder, limit, after,
+                    query -> bookService.getBooksByAuthorPage(id, query, sortColumn, sortOrder, limit, after));
+
+            // LOGGING ADDED
+            logger.info("Страница книг автора ID={} сформирована. Размер ответа: {} байт", id, body.length);
+
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при получении страницы книг автора ID={}: {}", id, e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     // Получение всех авторов с поддержкой сортировки
     @GetMapping
     public ResponseEntity<List<AuthorDTO>> getAllAuthors(
@@ -98,16 +177,35 @@ public class AuthorController {
     }
 
     // Добавление метода поиска авторов
+    // mode=fuzzy — поиск с опечатками: distance (1 или 2, по умолчанию 2) правок,
+    // результат упорядочен по расстоянию, если не задана сортировка
     @GetMapping("/search")
     public ResponseEntity<List<AuthorDTO>> searchAuthors(
             @RequestParam("q") String query,
             @RequestParam(required = false, name = "sort_column") String sortColumn,
-            @RequestParam(required = false, name = "sort_order") String sortOrder) {
+            @RequestParam(required = false, name = "sort_order") String sortOrder,
+            @RequestParam(required = false) String mode,
+            @RequestParam(required = false) Integer distance) {
         // LOGGING ADDED
-        logger.info("Получен запрос на поиск авторов. Запрос: {}, sort_column={}, sort_order={}",
-                query, sortColumn, sortOrder);
-
-        List<Author> authors = authorService.searchAuthors(query);
+        logger.info("Получен запрос на поиск авторов. Запрос: {}, sort_column={}, sort_order={}, mode={}, distance={}",
+                query, sortColumn, sortOrder, mode, distance);
+
+        List<Author> authors;
+        if ("fuzzy".equalsIgnoreCase(mode)) {
+            int maxDistance = distance != null ? distance : 2;
+            if (maxDistance < 1 || maxDistance > 2) {
+                // LOGGING ADDED
+                logger.warn("Недопустимое расстояние для поиска с опечатками: {}", distance);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            authors = authorService.searchAuthorsFuzzy(query, maxDistance);
+        } else if (mode == null || mode.isEmpty() || "substring".equalsIgnoreCase(mode)) {
+            authors = authorService.searchAuthors(query);
+        } else {
+            // LOGGING ADDED
+            logger.warn("Неизвестный режим поиска авторов: {}", mode);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
 
         // Применяем сортировку, если она задана
         if (sortColumn != null && sortOrder != null) {
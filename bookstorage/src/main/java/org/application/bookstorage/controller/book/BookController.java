@@ -1,20 +1,34 @@
 package org.application.bookstorage.controller.book;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.*;
 import org.application.bookstorage.dto.BookDTO;
 import org.application.bookstorage.dto.AuthorDTO;
+import org.application.bookstorage.dto.BookFacetsDTO;
+import org.application.bookstorage.dto.BookLookupDTO;
+import org.application.bookstorage.dto.BookPageDTO;
 import org.application.bookstorage.service.author.AuthorService;
 import org.application.bookstorage.service.authorship.AuthorshipService;
 import org.application.bookstorage.service.book.BookService;
+import org.application.bookstorage.service.book.SearchMode;
 import org.application.bookstorage.service.bookstyles.BookStylesService;
+import org.application.bookstorage.service.cache.CatalogResponseCache;
+import org.application.bookstorage.service.facet.BookFacetFilter;
 import org.application.bookstorage.service.publishingcompany.PublishingCompanyService;
 import org.application.bookstorage.service.styles.StylesService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -34,10 +48,16 @@ public class BookController {
     private final AuthorshipService authorshipService;
     private final StylesService stylesService;
     private final BookStylesService bookStylesService;
+    private final CatalogResponseCache responseCache;
+
+    private final ObjectMapper objectMapper;
 
     // LOGGING ADDED
     private static final Logger logger = LoggerFactory.getLogger(BookController.class);
 
+    // Через сколько книг сбрасывать буфер при потоковой выгрузке
+    private static final int STREAM_FLUSH_ROWS = 100;
+
     /**
      * Эндпоинт для массового удаления книг.
      * Метод: DELETE
@@ -113,6 +133,10 @@ public class BookController {
                 authorship.setId(new org.application.bookstorage.dao.AuthorshipId(book.getIsbn(), author.getId()));
                 return authorship;
             }).collect(Collectors.toList());
+            // Порядок авторов в запросе задаёт порядок в книге: первый автор — основной
+            for (int i = 0; i < authorships.size(); i++) {
+                authorships.get(i).setAuthorOrder(i);
+            }
 
             book.getAuthorships().addAll(authorships);
 
@@ -145,6 +169,24 @@ public class BookController {
         }
     }
 
+    // Сборка фасетного фильтра из параметров запроса
+    private BookFacetFilter buildFacetFilter(String search, List<String> genres, List<String> languages,
+                                             List<String> publishers, Integer yearFrom, Integer yearTo,
+                                             Float ageFrom, Float ageTo, BigDecimal priceFrom, BigDecimal priceTo) {
+        BookFacetFilter filter = new BookFacetFilter();
+        filter.setSearch(search);
+        filter.setGenres(genres);
+        filter.setLanguages(languages);
+        filter.setPublishers(publishers);
+        filter.setYearFrom(yearFrom);
+        filter.setYearTo(yearTo);
+        filter.setAgeFrom(ageFrom);
+        filter.setAgeTo(ageTo);
+        filter.setPriceFrom(priceFrom);
+        filter.setPriceTo(priceTo);
+        return filter;
+    }
+
     // Метод для получения или создания издательства
     private PublishingCompany getOrCreatePublishingCompany(String companyName) {
         if (companyName == null || companyName.trim().isEmpty()) {
@@ -169,11 +211,11 @@ public class BookController {
         // LOGGING ADDED
         logger.info("Получен запрос на получение книги по ISBN: {}", isbn);
 
-        return bookService.getBookByIsbn(isbn)
+        return bookService.getBookViewByIsbn(isbn)
                 .map(book -> {
                     // LOGGING ADDED
                     logger.info("Книга найдена: ISBN={}", book.getIsbn());
-                    return new ResponseEntity<>(mapToDTO(book), HttpStatus.OK);
+                    return new ResponseEntity<>(book, HttpStatus.OK);
                 })
                 .orElseGet(() -> {
                     // LOGGING ADDED
@@ -182,24 +224,49 @@ public class BookController {
                 });
     }
 
-    // Получение всех книг
+    /**
+     * Пакетное получение книг для сканеров касс и склада.
+     * Метод: POST
+     * URL: /api/books/lookup
+     * Тело запроса: список ISBN (не больше 500 различных)
+     * Ответ: найденные книги в порядке запроса и список ISBN, которых нет в каталоге.
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<BookLookupDTO> lookupBooks(@RequestBody List<String> isbns) {
+        // LOGGING ADDED
+        logger.info("Получен запрос на пакетное получение книг: {} ISBN", isbns.size());
+
+        try {
+            return new ResponseEntity<>(bookService.lookupBooks(isbns), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при пакетном получении книг: {}", e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Получение всех книг (ответ берётся из кэша сериализованных ответов, если он там есть)
     @GetMapping
-    public ResponseEntity<List<BookDTO>> getAllBooks(
+    public ResponseEntity<byte[]> getAllBooks(
             @RequestParam(required = false) String search,
             @RequestParam(required = false, name = "sort_column") String sortColumn,
-            @RequestParam(required = false, name = "sort_order") String sortOrder) {
+            @RequestParam(required = false, name = "sort_order") String sortOrder,
+            @RequestParam(required = false) String mode) {
         // LOGGING ADDED
-        logger.info("Получен запрос на получение всех книг. search={}, sort_column={}, sort_order={}",
-                search, sortColumn, sortOrder);
+        logger.info("Получен запрос на получение всех книг. search={}, sort_column={}, sort_order={}, mode={}",
+                search, sortColumn, sortOrder, mode);
 
         try {
-            List<Book> books = bookService.getAllBooks(search, sortColumn, sortOrder);
-            List<BookDTO> bookDTOs = books.stream().map(this::mapToDTO).collect(Collectors.toList());
+            // Режим проверяется до обращения к кэшу: неизвестный режим — ошибка, а не ответ из кэша для "books"
+            String endpoint = SearchMode.fromParameter(mode) == SearchMode.FTS
+                    ? CatalogResponseCache.FULL_TEXT_ENDPOINT : "books";
+            byte[] body = responseCache.getBooks(endpoint, null, search, sortColumn, sortOrder, null, null,
+                    query -> bookService.getAllBooks(query, mode, sortColumn, sortOrder));
 
             // LOGGING ADDED
-            logger.info("Поиск завершён. Найдено {} книг.", bookDTOs.size());
+            logger.info("Поиск завершён. Размер ответа: {} байт.", body.length);
 
-            return new ResponseEntity<>(bookDTOs, HttpStatus.OK);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
         } catch (RuntimeException e) {
             // LOGGING ADDED
             logger.error("Ошибка при получении списка книг: {}", e.getMessage(), e);
@@ -208,6 +275,181 @@ public class BookController {
         }
     }
 
+    /**
+     * Потоковая выгрузка всего каталога для интеграций.
+     * Метод: GET
+     * URL: /api/books/stream?format=ndjson|array
+     * Книги читаются из базы курсором и пишутся в ответ по мере чтения:
+     * ndjson (по умолчанию) — одна книга в строке, array — JSON-массив.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamBooks(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, name = "sort_column") String sortColumn,
+            @RequestParam(required = false, name = "sort_order") String sortOrder,
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+        // LOGGING ADDED
+        logger.info("Получен запрос на потоковую выгрузку книг. search={}, sort_column={}, sort_order={}, format={}",
+                search, sortColumn, sortOrder, format);
+
+        boolean jsonArray = "array".equalsIgnoreCase(format);
+        if (!jsonArray && !"ndjson".equalsIgnoreCase(format)) {
+            logger.warn("Неизвестный формат потоковой выгрузки: {}", format);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                // Поток ответа закрывает контейнер, генератор его не трогает
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (jsonArray) {
+                    generator.writeStartArray();
+                } else {
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+                }
+                int[] written = {0};
+                bookService.streamAllBooks(search, sortColumn, sortOrder, book -> {
+                    try {
+                        generator.writeObject(book);
+                        // Отправляем клиенту порциями, не дожидаясь конца выгрузки
+                        if (++written[0] % STREAM_FLUSH_ROWS == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (jsonArray) {
+                    generator.writeEndArray();
+                } else if (written[0] > 0) {
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+
+        MediaType mediaType = jsonArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    /**
+     * Каталог с фасетным фильтром.
+     * Метод: GET
+     * URL: /api/books/filter?genre=..&language=..&publisher=..&year_from=..&year_to=..
+     *      &age_from=..&age_to=..&price_from=..&price_to=..&search=..&sort_column=..&sort_order=..
+     * Параметры genre, language и publisher можно указывать несколько раз.
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<List<BookDTO>> getFilteredBooks(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, name = "genre") List<String> genres,
+            @RequestParam(required = false, name = "language") List<String> languages,
+            @RequestParam(required = false, name = "publisher") List<String> publishers,
+            @RequestParam(required = false, name = "year_from") Integer yearFrom,
+            @RequestParam(required = false, name = "year_to") Integer yearTo,
+            @RequestParam(required = false, name = "age_from") Float ageFrom,
+            @RequestParam(required = false, name = "age_to") Float ageTo,
+            @RequestParam(required = false, name = "price_from") BigDecimal priceFrom,
+            @RequestParam(required = false, name = "price_to") BigDecimal priceTo,
+            @RequestParam(required = false, name = "sort_column") String sortColumn,
+            @RequestParam(required = false, name = "sort_order") String sortOrder) {
+        BookFacetFilter filter = buildFacetFilter(search, genres, languages, publishers,
+                yearFrom, yearTo, ageFrom, ageTo, priceFrom, priceTo);
+        // LOGGING ADDED
+        logger.info("Получен запрос на фильтрацию книг: {}, sort_column={}, sort_order={}", filter, sortColumn, sortOrder);
+
+        try {
+            List<BookDTO> bookDTOs = bookService.getFilteredBooks(filter, sortColumn, sortOrder);
+
+            // LOGGING ADDED
+            logger.info("По фильтру возвращено {} книг", bookDTOs.size());
+
+            return new ResponseEntity<>(bookDTOs, HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            // LOGGING ADDED
+            logger.warn("Фильтрация книг недоступна: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при фильтрации книг: {}", e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Количество книг по значениям фасетов (жанр, язык, издательство, год, возрастное ограничение)
+     * и диапазон цен с учётом фильтра.
+     * Метод: GET
+     * URL: /api/books/facets (параметры те же, что у /api/books/filter)
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacetsDTO> getFacets(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, name = "genre") List<String> genres,
+            @RequestParam(required = false, name = "language") List<String> languages,
+            @RequestParam(required = false, name = "publisher") List<String> publishers,
+            @RequestParam(required = false, name = "year_from") Integer yearFrom,
+            @RequestParam(required = false, name = "year_to") Integer yearTo,
+            @RequestParam(required = false, name = "age_from") Float ageFrom,
+            @RequestParam(required = false, name = "age_to") Float ageTo,
+            @RequestParam(required = false, name = "price_from") BigDecimal priceFrom,
+            @RequestParam(required = false, name = "price_to") BigDecimal priceTo) {
+        BookFacetFilter filter = buildFacetFilter(search, genres, languages, publishers,
+                yearFrom, yearTo, ageFrom, ageTo, priceFrom, priceTo);
+        // LOGGING ADDED
+        logger.info("Получен запрос на подсчёт фасетов: {}", filter);
+
+        try {
+            return new ResponseEntity<>(bookService.getFacets(filter), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            // LOGGING ADDED
+            logger.warn("Подсчёт фасетов недоступен: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при подсчёте фасетов: {}", e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Постраничное получение книг (keyset-пагинация).
+     * Метод: GET
+     * URL: /api/books?limit=50&after=<курсор>
+     * Курсор следующей страницы возвращается в поле nextCursor ответа.
+     * Полнотекстовый поиск (mode=fts) упорядочен по релевантности и постранично не выдаётся — 400.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<byte[]> getBooksPage(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, name = "sort_column") String sortColumn,
+            @RequestParam(required = false, name = "sort_order") String sortOrder,
+            @RequestParam int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String mode) {
+        // LOGGING ADDED
+        logger.info("Получен запрос на получение страницы книг. search={}, sort_column={}, sort_order={}, limit={}, after={}, mode={}",
+                search, sortColumn, sortOrder, limit, after, mode);
+
+        try {
+            if (SearchMode.fromParameter(mode) == SearchMode.FTS) {
+                // LOGGING ADDED
+                logger.warn("Полнотекстовый поиск не поддерживает постраничный режим (limit={})", limit);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            byte[] body = responseCache.getBooks("books", null, search, sortColumn, sortOrder, limit, after,
+                    query -> bookService.getBooksPage(query, sortColumn, sortOrder, limit, after));
+
+            // LOGGING ADDED
+            logger.info("Страница сформирована. Размер ответа: {} байт", body.length);
+
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при получении страницы книг: {}", e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     // Обновление книги
     @PutMapping("/{isbn}")
     public ResponseEntity<BookDTO> updateBook(@PathVariable String isbn, @Valid @RequestBody BookDTO bookDTO) {
@@ -215,8 +457,25 @@ public class BookController {
         logger.info("Получен запрос на обновление книги ISBN={}. Новые данные: {}", isbn, bookDTO);
 
         try {
-            // Получение или создание издательства
+            // Издательство, авторы и жанры находятся или создаются до изменения книги: их сервисы выполняют
+            // отдельные транзакции, и изменённая книга попала бы в базу раньше вызова bookService.updateBook
             PublishingCompany publishingCompany = getOrCreatePublishingCompany(bookDTO.getPublishingCompany());
+            List<Author> authors = bookDTO.getAuthors().stream().map(authorDTO -> {
+                if (authorDTO.getId() != null) {
+                    return authorService.getAuthorById(authorDTO.getId())
+                            .orElseThrow(() -> new RuntimeException("Автор не найден с ID: " + authorDTO.getId()));
+                }
+                Author author = new Author();
+                author.setFio(authorDTO.getFio());
+                author.setBirthDate(authorDTO.getBirthDate());
+                author.setCountry(authorDTO.getCountry());
+                author.setNickname(authorDTO.getNickname());
+                return authorService.createAuthor(author);
+            }).collect(Collectors.toList());
+            List<Styles> styles = bookDTO.getGenres().stream()
+                    .map(genreName -> stylesService.getStyleByName(genreName)
+                            .orElseGet(() -> stylesService.createStyle(new Styles(null, genreName, null))))
+                    .collect(Collectors.toList());
 
             // Получаем существующую книгу
             Book existingBook = bookService.getBookByIsbn(isbn)
@@ -234,33 +493,19 @@ public class BookController {
 
             // 1. Обновляем авторов:
             existingBook.getAuthorships().clear();
-            List<Authorship> newAuthorships = bookDTO.getAuthors().stream().map(authorDTO -> {
-                Author author;
-                if (authorDTO.getId() != null) {
-                    author = authorService.getAuthorById(authorDTO.getId())
-                            .orElseThrow(() -> new RuntimeException("Автор не найден с ID: " + authorDTO.getId()));
-                } else {
-                    author = new Author();
-                    author.setFio(authorDTO.getFio());
-                    author.setBirthDate(authorDTO.getBirthDate());
-                    author.setCountry(authorDTO.getCountry());
-                    author.setNickname(authorDTO.getNickname());
-                    author = authorService.createAuthor(author);
-                }
+            for (int i = 0; i < authors.size(); i++) {
+                Author author = authors.get(i);
                 Authorship authorship = new Authorship();
                 authorship.setId(new AuthorshipId(existingBook.getIsbn(), author.getId()));
                 authorship.setBook(existingBook);
                 authorship.setAuthor(author);
-                return authorship;
-            }).collect(Collectors.toList());
-            existingBook.getAuthorships().addAll(newAuthorships);
+                authorship.setAuthorOrder(i);
+                existingBook.getAuthorships().add(authorship);
+            }
 
             // 2. Обновляем жанры (BookStyles):
             existingBook.getBookStyles().clear();
-            List<String> genres = bookDTO.getGenres();
-            for (String genreName : genres) {
-                Styles style = stylesService.getStyleByName(genreName)
-                        .orElseGet(() -> stylesService.createStyle(new Styles(null, genreName, null)));
+            for (Styles style : styles) {
                 BookStyles bookStyle = new BookStyles();
                 bookStyle.setId(new BookStylesId(existingBook.getIsbn(), style.getId()));
                 bookStyle.setBook(existingBook);
@@ -50,20 +50,23 @@ public class CsvController {
     /**
      * Эндпоинт для импорта данных из CSV файлов.
      * Метод: POST
-     * URL: /api/csv/import
+     * URL: /api/csv/import?mode=copy|batch|jpa (по умолчанию copy)
      */
     @PostMapping("/import")
-    public ResponseEntity<String> importData() {
+    public ResponseEntity<String> importData(@RequestParam(value = "mode", required = false) String mode) {
         // LOGGING ADDED
-        logger.info("Получен запрос на импорт данных из CSV");
+        logger.info("Получен запрос на импорт данных из CSV, режим: {}", mode);
 
         try {
-            csvService.importData();
+            csvService.importData(mode);
 
             // LOGGING ADDED
             logger.info("Импорт данных из CSV успешно завершён.");
 
             return ResponseEntity.ok("Данные успешно импортированы из CSV файлов.");
+        } catch (IllegalArgumentException e) {
+            logger.error("Некорректный запрос на импорт данных: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (IOException e) {
             logger.error("Ошибка при импорте данных", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -2,9 +2,13 @@ package org.application.bookstorage.controller.publishingcompany;
 
 import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.PublishingCompany;
+import org.application.bookstorage.dto.PublisherSummaryDTO;
 import org.application.bookstorage.dto.PublishingCompanyDTO;
+import org.application.bookstorage.service.book.BookService;
+import org.application.bookstorage.service.cache.CatalogResponseCache;
 import org.application.bookstorage.service.publishingcompany.PublishingCompanyService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,6 +26,8 @@ import org.slf4j.LoggerFactory;
 public class PublishingCompanyController {
 
     private final PublishingCompanyService publishingCompanyService;
+    private final BookService bookService;
+    private final CatalogResponseCache responseCache;
 
     // LOGGING ADDED
     private static final Logger logger = LoggerFactory.getLogger(PublishingCompanyController.class);
@@ -67,6 +73,100 @@ public class PublishingCompanyController {
                 });
     }
 
+    /**
+     * Сводка по издательству: количество наименований, экземпляров в наличии,
+     * стоимость запаса и количество наименований по языкам. Считается в PostgreSQL.
+     * Метод: GET
+     * URL: /api/publishing-companies/{name}/summary
+     */
+    @GetMapping("/{name}/summary")
+    public ResponseEntity<PublisherSummaryDTO> getPublisherSummary(@PathVariable String name) {
+        // LOGGING ADDED
+        logger.info("Получен запрос на сводку по издательству: {}", name);
+
+        return publishingCompanyService.getPublisherSummary(name)
+                .map(summary -> new ResponseEntity<>(summary, HttpStatus.OK))
+                .orElseGet(() -> {
+                    // LOGGING ADDED
+                    logger.warn("Издательство с именем '{}' не найдено", name);
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                });
+    }
+
+    /**
+     * Книги издательства.
+     * Метод: GET
+     * URL: /api/publishing-companies/{name}/books?search=..&sort_column=..&sort_order=..
+     * Сортировка и поиск — как в /api/books.
+     */
+    @GetMapping("/{name}/books")
+    public ResponseEntity<byte[]> getPublisherBooks(
+            @PathVariable String name,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, name = "sort_column") String sortColumn,
+            @RequestParam(required = false, name = "sort_order") String sortOrder) {
+        // LOGGING ADDED
+        logger.info("Получен запрос на получение книг издательства '{}'. search={}, sort_column={}, sort_order={}",
+                name, search, sortColumn, sortOrder);
+
+        if (publishingCompanyService.getPublishingCompanyByName(name).isEmpty()) {
+            // LOGGING ADDED
+            logger.warn("Издательство с именем '{}' не найдено", name);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            byte[] body = responseCache.getBooks("publisher-books", name, search, sortColumn, sortOrder, null, null,
+                    query -> bookService.getBooksByPublisher(name, query, sortColumn, sortOrder));
+
+            // LOGGING ADDED
+            logger.info("Книги издательства '{}' возвращены. Размер ответа: {} байт", name, body.length);
+
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при получении книг издательства '{}': {}", name, e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Книги издательства постранично (keyset-пагинация).
+     * Метод: GET
+     * URL: /api/publishing-companies/{name}/books?limit=..&after=..
+     * Ответ: books — книги страницы, nextCursor — значение after для следующей страницы (null на последней).
+     */
+    @GetMapping(value = "/{name}/books", params = "limit")
+    public ResponseEntity<byte[]> getPublisherBooksPage(
+            @PathVariable String name,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false, name = "sort_column") String sortColumn,
+            @RequestParam(required = false, name = "sort_order") String sortOrder,
+            @RequestParam int limit,
+            @RequestParam(required = false) String after) {
+        // LOGGING ADDED
+        logger.info("Получен запрос на страницу книг издательства '{}'. search={}, sort_column={}, sort_order={}, limit={}, after={}",
+                name, search, sortColumn, sortOrder, limit, after);
+
+        if (publishingCompanyService.getPublishingCompanyByName(name).isEmpty()) {
+            // LOGGING ADDED
+            logger.warn("Издательство с именем '{}' не найдено", name);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            byte[] body = responseCache.getBooks("publisher-books", name, search, sortColumn, sortOrder, limit, after,
+                    query -> bookService.getBooksByPublisherPage(name, query, sortColumn, sortOrder, limit, after));
+
+            // LOGGING ADDED
+            logger.info("Страница книг издательства '{}' сформирована. Размер ответа: {} байт", name, body.length);
+
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при получении страницы книг издательства '{}': {}", name, e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     // Получение всех издательств
     @GetMapping
     public ResponseEntity<List<PublishingCompanyDTO>> getAllPublishingCompanies() {
@@ -0,0 +1,52 @@
+package org.application.bookstorage.controller.suggest;
+
+import lombok.RequiredArgsConstructor;
+import org.application.bookstorage.dto.SuggestionDTO;
+import org.application.bookstorage.service.suggest.SuggestService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// LOGGING ADDED
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@RestController
+@RequestMapping("/api/suggest")
+@RequiredArgsConstructor
+public class SuggestController {
+
+    private final SuggestService suggestService;
+
+    // LOGGING ADDED
+    private static final Logger logger = LoggerFactory.getLogger(SuggestController.class);
+
+    /**
+     * Подсказки для форм книги.
+     * Метод: GET
+     * URL: /api/suggest?type=author|style|publisher&prefix=..&limit=10
+     * Ответ: записи, одно из слов названия которых начинается с prefix, по убыванию количества книг.
+     */
+    @GetMapping
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam String type,
+            @RequestParam(required = false, defaultValue = "") String prefix,
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+        // LOGGING ADDED
+        logger.debug("Получен запрос подсказок: type={}, prefix={}, limit={}", type, prefix, limit);
+
+        try {
+            return ResponseEntity.ok(suggestService.suggest(type, prefix, limit));
+        } catch (IllegalStateException e) {
+            // LOGGING ADDED
+            logger.warn("Подсказки недоступны: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (RuntimeException e) {
+            // LOGGING ADDED
+            logger.error("Ошибка при получении подсказок: {}", e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -4,9 +4,17 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
-@Table(name = "authorships")
+@BatchSize(size = 100)
+@Table(name = "authorships", indexes = {
+        // Поиск основного автора книги (минимальный author_order) для сортировки каталога по автору
+        @Index(name = "idx_authorships_book_order", columnList = "book_isbn, author_order, author_id"),
+        // Книги автора: в скрипте создания БД первичный ключ — (book_isbn, author_id), по author_id он не подходит
+        @Index(name = "idx_authorships_author_book", columnList = "author_id, book_isbn")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -15,13 +23,18 @@ public class Authorship {
     @EmbeddedId
     private AuthorshipId id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("bookIsbn")
     @JoinColumn(name = "book_isbn")
     private Book book;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("authorId")
     @JoinColumn(name = "author_id")
     private Author author;
+
+    // Порядковый номер автора в списке авторов книги; основной автор — с наименьшим номером
+    @Column(name = "author_order", nullable = false)
+    @ColumnDefault("0")
+    private int authorOrder;
 }
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -13,11 +14,30 @@ import java.util.Set;
 
 
 @Entity
+// Книги из закэшированной коллекции PublishingCompany.books догружаются пакетами по id
+@BatchSize(size = 100)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table (name = "books")
+// План выборки для списков каталога: издательство, авторы и жанры загружаются одним запросом
+@NamedEntityGraph(name = "Book.catalog",
+        attributeNodes = {
+                @NamedAttributeNode("publishingCompany"),
+                @NamedAttributeNode(value = "authorships", subgraph = "authorships"),
+                @NamedAttributeNode(value = "bookStyles", subgraph = "bookStyles")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "authorships", attributeNodes = @NamedAttributeNode("author")),
+                @NamedSubgraph(name = "bookStyles", attributeNodes = @NamedAttributeNode("styleEntity"))
+        })
+@Table (name = "books", indexes = {
+        // Составные индексы (столбец сортировки, isbn) для keyset-пагинации каталога
+        @Index(name = "idx_books_name_isbn", columnList = "name, isbn"),
+        @Index(name = "idx_books_publication_year_isbn", columnList = "publication_year, isbn"),
+        @Index(name = "idx_books_publishing_company_isbn", columnList = "publishing_company, isbn"),
+        @Index(name = "idx_books_count_of_books_isbn", columnList = "count_of_books, isbn")
+})
 public class Book {
      @Id
      @Column(name = "isbn")
@@ -32,7 +52,7 @@ public class Book {
      @Column(name = "age_limit")
      private float ageLimit; // Изменено на float для соответствия SQL типу real
 
-     @ManyToOne
+     @ManyToOne(fetch = FetchType.LAZY)
      @JoinColumn(name = "publishing_company")
      @JsonManagedReference
      private PublishingCompany publishingCompany;
@@ -49,10 +69,13 @@ public class Book {
      @Column(name = "count_of_books")
      private int countOfBooks;
 
+     // Вне плана Book.catalog коллекции догружаются пакетами, а не по одному запросу на книгу
      @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+     @BatchSize(size = 100)
      private Set<Authorship> authorships;
 
      @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+     @BatchSize(size = 100)
      private Set<BookStyles> bookStyles;
 
 }
@@ -4,9 +4,14 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 @Entity
-@Table(name = "book_styles")
+@BatchSize(size = 100)
+@Table(name = "book_styles", indexes = {
+        // Книги жанра: первичный ключ (book_isbn, style) по жанру не подходит
+        @Index(name = "idx_book_styles_style_book", columnList = "style, book_isbn")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -15,12 +20,12 @@ public class BookStyles {
     @EmbeddedId
     private BookStylesId id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("bookIsbn")
     @JoinColumn(name = "book_isbn")
     private Book book;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("style")
     @JoinColumn(name = "style")
     private Styles styleEntity;
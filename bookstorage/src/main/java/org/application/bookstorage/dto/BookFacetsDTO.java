@@ -0,0 +1,23 @@
+package org.application.bookstorage.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+public class BookFacetsDTO {
+    // Количество книг, удовлетворяющих фильтру
+    private int total;
+
+    // Количество книг по значениям фасетов; для каждого фасета учитываются все условия фильтра, кроме его собственного
+    private Map<String, Integer> genres;
+    private Map<String, Integer> languages;
+    private Map<String, Integer> publishers;
+    private Map<Integer, Integer> publicationYears;
+    private Map<Float, Integer> ageLimits;
+
+    // Диапазон цен книг, подходящих под остальные условия (null, если таких книг нет)
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+}
@@ -0,0 +1,14 @@
+package org.application.bookstorage.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BookLookupDTO {
+    // Найденные книги в порядке ISBN в запросе
+    private List<BookDTO> books;
+
+    // ISBN из запроса, для которых книги нет
+    private List<String> missing;
+}
@@ -0,0 +1,13 @@
+package org.application.bookstorage.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BookPageDTO {
+    private List<BookDTO> books;
+
+    // Курсор для запроса следующей страницы (null, если страница последняя)
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package org.application.bookstorage.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+public class PublisherSummaryDTO {
+    private String name;
+
+    // Количество наименований книг издательства
+    private long titleCount;
+
+    // Экземпляров в наличии (сумма count_of_books)
+    private long copiesInStock;
+
+    // Стоимость запаса (сумма cost * count_of_books)
+    private BigDecimal inventoryValue;
+
+    // Количество наименований по языкам; книги без языка учитываются под пустой строкой
+    private Map<String, Long> languages;
+}
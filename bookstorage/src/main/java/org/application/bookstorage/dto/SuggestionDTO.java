@@ -0,0 +1,20 @@
+package org.application.bookstorage.dto;
+
+import lombok.Data;
+
+@Data
+public class SuggestionDTO {
+    // id автора или жанра, название издательства
+    private String id;
+
+    // ФИО автора или название жанра/издательства
+    private String name;
+
+    // Только для авторов
+    private String nickname;
+    private String birthDate;
+    private String country;
+
+    // Количество книг — по нему упорядочены подсказки
+    private long bookCount;
+}
@@ -0,0 +1,113 @@
+package org.application.bookstorage.event;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Событие об изменении данных каталога.
+ * Публикуется сервисами при создании, изменении и удалении записей; обработчики
+ * (поисковый индекс и другие копии данных в памяти) получают его после фиксации транзакции
+ * и перечитывают только затронутые записи.
+ */
+@Getter
+public class CatalogChangedEvent {
+
+    /**
+     * Тип изменённых записей.
+     */
+    public enum Entity {
+        BOOK,
+        AUTHOR,
+        PUBLISHING_COMPANY,
+        STYLE
+    }
+
+    // null — изменился весь каталог (например, после импорта CSV)
+    private final Entity entity;
+
+    /**
+     * Связи книги, от которых зависят количества книг у авторов, издательств и жанров.
+     */
+    public record BookLinks(String publisher, Set<Integer> authorIds, Set<Long> styleIds) {
+    }
+
+    // Ключи изменённых записей: ISBN книг, id авторов и жанров, названия издательств
+    private final Set<Object> ids;
+
+    // Связи книг до и после изменения (только для BOOK, иначе null); нет ISBN в before — книга создана,
+    // нет в after — удалена
+    private final Map<String, BookLinks> before;
+    private final Map<String, BookLinks> after;
+
+    // ISBN книг, связанных с изменёнными жанрами (только для STYLE, иначе null): переименование
+    // или удаление жанра меняет список жанров этих книг
+    private final Set<String> styleBooks;
+
+    private CatalogChangedEvent(Entity entity, Set<Object> ids) {
+        this(entity, ids, null, null, null);
+    }
+
+    private CatalogChangedEvent(Entity entity, Set<Object> ids, Map<String, BookLinks> before, Map<String, BookLinks> after,
+                                Set<String> styleBooks) {
+        this.entity = entity;
+        this.ids = ids;
+        this.before = before;
+        this.after = after;
+        this.styleBooks = styleBooks;
+    }
+
+    public static CatalogChangedEvent of(Entity entity, Collection<?> ids) {
+        return new CatalogChangedEvent(entity, Collections.unmodifiableSet(new LinkedHashSet<>(ids)));
+    }
+
+    public static CatalogChangedEvent of(Entity entity, Object id) {
+        return of(entity, Collections.singleton(id));
+    }
+
+    /**
+     * Изменение книг isbns со связями до и после изменения.
+     */
+    public static CatalogChangedEvent ofBooks(Collection<String> isbns, Map<String, BookLinks> before,
+                                              Map<String, BookLinks> after) {
+        return new CatalogChangedEvent(Entity.BOOK, Collections.unmodifiableSet(new LinkedHashSet<>(isbns)),
+                Collections.unmodifiableMap(before), Collections.unmodifiableMap(after), null);
+    }
+
+    /**
+     * Изменение жанра id, с которым связаны книги bookIsbns.
+     */
+    public static CatalogChangedEvent ofStyle(Long id, Collection<String> bookIsbns) {
+        return new CatalogChangedEvent(Entity.STYLE, Collections.singleton(id), null, null,
+                Collections.unmodifiableSet(new LinkedHashSet<>(bookIsbns)));
+    }
+
+    public static CatalogChangedEvent all() {
+        return new CatalogChangedEvent(null, Collections.emptySet());
+    }
+
+    public boolean isAll() {
+        return entity == null;
+    }
+
+    public boolean hasBookLinks() {
+        return before != null;
+    }
+
+    public boolean hasStyleBooks() {
+        return styleBooks != null;
+    }
+
+    public boolean affects(Entity type) {
+        return entity == null || entity == type;
+    }
+
+    @Override
+    public String toString() {
+        return isAll() ? "CatalogChangedEvent[ALL]" : "CatalogChangedEvent[" + entity + ", " + ids + "]";
+    }
+}
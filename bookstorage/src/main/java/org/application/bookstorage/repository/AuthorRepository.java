@@ -1,17 +1,38 @@
 package org.application.bookstorage.repository;
 
+import jakarta.persistence.QueryHint;
 import org.application.bookstorage.dao.Author;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface AuthorRepository extends JpaRepository<Author, Integer> {
-    // Метод для поиска авторов по частичному совпадению ФИО, игнорируя регистр
-    List<Author> findByFioContainingIgnoreCase(String fio);
+
+    // Список авторов кэшируется в кэше запросов Hibernate (сбрасывается при изменении таблицы authors)
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Author> findAll();
+
+    // Метод для поиска авторов по частичному совпадению ФИО, игнорируя регистр.
+    // Условие записано как lower(fio) like ..., чтобы использовался триграммный индекс idx_authors_fio_trgm (schema.sql)
+    @Query("select a from Author a where lower(a.fio) like lower(concat('%', :#{escape(#fio)}, '%')) escape :#{escapeCharacter()}")
+    List<Author> findByFioContainingIgnoreCase(@Param("fio") String fio);
     // Метод для поиска авторов по частичному совпадению ФИО или псевдонима, игнорируя регистр
-    List<Author> findByFioContainingIgnoreCaseOrNicknameContainingIgnoreCase(String fio, String nickname);
+    // (индексы idx_authors_fio_trgm и idx_authors_nickname_trgm)
+    @Query("select a from Author a where lower(a.fio) like lower(concat('%', :#{escape(#fio)}, '%')) escape :#{escapeCharacter()}" +
+            " or lower(a.nickname) like lower(concat('%', :#{escape(#nickname)}, '%')) escape :#{escapeCharacter()}")
+    List<Author> findByFioContainingIgnoreCaseOrNicknameContainingIgnoreCase(@Param("fio") String fio,
+                                                                            @Param("nickname") String nickname);
+
+    // Идентификаторы всех авторов — для проверки ссылок при импорте CSV без запроса на строку
+    @Query("select a.id from Author a")
+    List<Integer> findAllIds();
 
     // Дополнительные методы поиска при необходимости
 }
@@ -3,9 +3,47 @@ package org.application.bookstorage.repository;
 import org.application.bookstorage.dao.Authorship;
 import org.application.bookstorage.dao.AuthorshipId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface AuthorshipRepository extends JpaRepository<Authorship, AuthorshipId> {
+    /**
+     * Следующий свободный порядковый номер автора для книги (0, если авторов ещё нет).
+     *
+     * @param bookIsbn ISBN книги.
+     * @return Порядковый номер для нового автора.
+     */
+    @Query("select coalesce(max(a.authorOrder) + 1, 0) from Authorship a where a.id.bookIsbn = :bookIsbn")
+    int findNextAuthorOrder(@Param("bookIsbn") String bookIsbn);
+
+    /**
+     * ISBN книг автора. Запрос выполняется по индексу idx_authorships_author_book (author_id, book_isbn)
+     * без чтения всей таблицы: первичный ключ authorships начинается с book_isbn и здесь не используется.
+     *
+     * @param authorId Идентификатор автора.
+     * @return Список ISBN книг автора.
+     */
+    @Query("select a.id.bookIsbn from Authorship a where a.id.authorId = :authorId")
+    List<String> findBookIsbnsByAuthorId(@Param("authorId") int authorId);
+
+    /**
+     * Количество книг каждого автора.
+     *
+     * @return Пары [id автора, количество книг]; авторы без книг не возвращаются.
+     */
+    @Query("select a.id.authorId, count(a) from Authorship a group by a.id.authorId")
+    List<Object[]> countBooksByAuthor();
+
+    /**
+     * Ключи всех авторств (для поиска повторов при импорте CSV).
+     *
+     * @return Пары [ISBN книги, id автора].
+     */
+    @Query("select a.id.bookIsbn, a.id.authorId from Authorship a")
+    List<Object[]> findAllKeys();
     // Дополнительные методы поиска при необходимости
 }
@@ -0,0 +1,10 @@
+package org.application.bookstorage.repository;
+
+/**
+ * Проекция книги только с ISBN и названием (без загрузки связей).
+ */
+public interface BookNameView {
+    String getIsbn();
+
+    String getName();
+}
@@ -2,14 +2,38 @@ package org.application.bookstorage.repository;
 
 import org.application.bookstorage.dao.Book;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, String> {
-    List<Book> findByNameContainingIgnoreCase(String name, Sort sort);
+public interface BookRepository extends JpaRepository<Book, String>, BookRepositoryCustom {
+    @Override
+    @EntityGraph("Book.catalog")
+    List<Book> findAll(Sort sort);
+
+    // Поиск по подстроке названия без учёта регистра; использует триграммный индекс idx_books_name_trgm (schema.sql)
+    @EntityGraph("Book.catalog")
+    @Query("select b from Book b where lower(b.name) like lower(concat('%', :#{escape(#name)}, '%')) escape :#{escapeCharacter()}")
+    List<Book> findByNameContainingIgnoreCase(@Param("name") String name, Sort sort);
+
+    // ISBN и названия книг для поискового индекса в памяти
+    List<BookNameView> findAllProjectedBy();
+
+    List<BookNameView> findByIsbnIn(Collection<String> isbns);
+
+    // Все ISBN каталога для фильтра Блума (читается только первичный ключ)
+    @Query("select b.isbn from Book b")
+    List<String> findAllIsbns();
+
+    // Количество книг каждого издательства: пары [название, количество] (индекс idx_books_publishing_company_isbn)
+    @Query("select b.publishingCompany.name, count(b) from Book b group by b.publishingCompany.name")
+    List<Object[]> countBooksByPublishingCompany();
     // Дополнительные методы поиска при необходимости
 }
 
@@ -0,0 +1,107 @@
+package org.application.bookstorage.repository;
+
+import org.application.bookstorage.dao.Book;
+import org.application.bookstorage.dto.BookDTO;
+import org.application.bookstorage.dto.PublisherSummaryDTO;
+import org.application.bookstorage.event.CatalogChangedEvent.BookLinks;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Запросы к каталогу книг, которые нельзя выразить производными методами Spring Data.
+ * Методы возвращают готовые BookDTO (read-model): данные читаются одним SQL-запросом,
+ * авторы и жанры агрегируются в PostgreSQL, управляемые сущности не создаются.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Возвращает книги каталога в порядке сортировки с продолжением после курсора (keyset-пагинация, без OFFSET).
+     * Книги упорядочены по столбцу сортировки, при равенстве значений — по ISBN.
+     *
+     * @param search     Подстрока для поиска в названии (может быть null).
+     * @param isbns      Ограничение выборки книгами с этими ISBN (null — без ограничения).
+     * @param publisher  Ограничение выборки книгами издательства (null — без ограничения).
+     * @param sortColumn Столбец сортировки.
+     * @param descending Сортировка по убыванию.
+     * @param afterValue Значение столбца сортировки последней книги предыдущей страницы (может быть null).
+     * @param afterIsbn  ISBN последней книги предыдущей страницы; null для первой страницы.
+     * @param limit      Максимальное количество книг в результате; null — без ограничения.
+     * @return Список книг в порядке сортировки.
+     */
+    List<BookDTO> findCatalogViews(String search, Collection<String> isbns, String publisher, BookSortColumn sortColumn,
+                                   boolean descending, String afterValue, String afterIsbn, Integer limit);
+
+    /**
+     * Полнотекстовый поиск книг с учётом русской морфологии: запрос сопоставляется со столбцами
+     * search_vector книг (название, издательство) и их авторов (ФИО, псевдоним) по GIN-индексам.
+     *
+     * @param query      Запрос в синтаксисе websearch_to_tsquery: слова, "фраза", or, -исключение.
+     * @param sortColumn Столбец сортировки; null — по убыванию релевантности (ts_rank), затем по ISBN.
+     * @param descending Сортировка по убыванию (для столбца сортировки).
+     * @return Найденные книги.
+     */
+    List<BookDTO> findCatalogViewsFullText(String query, BookSortColumn sortColumn, boolean descending);
+
+    /**
+     * Передаёт книги каталога обработчику по мере чтения из базы, не накапливая их в памяти.
+     * Строки читаются серверным курсором PostgreSQL порциями, поэтому метод нужно вызывать
+     * внутри транзакции (вне транзакции драйвер загрузит весь результат сразу).
+     *
+     * @param search     Подстрока для поиска в названии (может быть null).
+     * @param isbns      Ограничение выборки книгами с этими ISBN (null — без ограничения).
+     * @param sortColumn Столбец сортировки.
+     * @param descending Сортировка по убыванию.
+     * @param consumer   Обработчик, вызываемый для каждой книги в порядке сортировки.
+     */
+    void streamCatalogViews(String search, Collection<String> isbns, BookSortColumn sortColumn, boolean descending, Consumer<BookDTO> consumer);
+
+    /**
+     * Возвращает книги с заданными ISBN.
+     *
+     * @param isbns Список ISBN.
+     * @return Найденные книги (порядок не гарантируется).
+     */
+    List<BookDTO> findViewsByIsbns(Collection<String> isbns);
+
+    /**
+     * Сохраняет новую книгу без предварительного чтения (persist вместо merge).
+     * save() для сущности с заданным ISBN выполняет merge, а он сначала ищет книгу в базе;
+     * метод нужен, когда отсутствие книги уже известно (например, по фильтру ISBN).
+     * Связи authorships и bookStyles сохраняются каскадно.
+     *
+     * @param book Книга, которой нет в базе.
+     * @return Та же книга, ставшая управляемой.
+     */
+    Book insert(Book book);
+
+    /**
+     * Сводка по книгам издательства, посчитанная агрегатным запросом
+     * (по индексу idx_books_publishing_company_isbn).
+     *
+     * @param publisher Название издательства.
+     * @return Количество наименований, экземпляров, стоимость запаса и разбивка по языкам.
+     */
+    PublisherSummaryDTO findPublisherSummary(String publisher);
+
+    /**
+     * Связи книг (издательство, авторы, жанры) для события CatalogChangedEvent.
+     * Несохранённые изменения контекста сначала сбрасываются в базу.
+     *
+     * @param isbns Список ISBN.
+     * @return Связи найденных книг по ISBN.
+     */
+    Map<String, BookLinks> findBookLinks(Collection<String> isbns);
+
+    /**
+     * Связи книг до изменения: читается состояние в базе без несохранённых изменений контекста,
+     * а строки книг блокируются (SELECT ... FOR UPDATE) до конца транзакции, чтобы прочитанные связи
+     * не изменили параллельные транзакции. Вызывается до изменения книг.
+     *
+     * @param isbns Список ISBN.
+     * @return Связи найденных книг по ISBN.
+     */
+    Map<String, BookLinks> lockBookLinks(Collection<String> isbns);
+}
@@ -0,0 +1,346 @@
+package org.application.bookstorage.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.application.bookstorage.dao.Author;
+import org.application.bookstorage.dao.Authorship;
+import org.application.bookstorage.dao.Book;
+import org.application.bookstorage.dao.BookStyles;
+import org.application.bookstorage.dao.Styles;
+import org.application.bookstorage.dto.AuthorDTO;
+import org.application.bookstorage.dto.BookDTO;
+import org.application.bookstorage.dto.PublisherSummaryDTO;
+import org.application.bookstorage.event.CatalogChangedEvent.BookLinks;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    // Все поля BookDTO; авторы собираются в JSON, жанры — в массив, коррелированными подзапросами,
+    // поэтому каждая строка результата полностью описывает книгу и её можно отдавать сразу
+    private static final String SELECT_VIEW = "SELECT b.isbn, b.name, b.publication_year, b.age_limit, " +
+            "b.publishing_company, b.page_count, b.language, b.cost, b.count_of_books, " +
+            "(SELECT json_agg(json_build_object('id', a.id, 'fio', a.fio, 'birthDate', a.birth_date, " +
+            "'country', a.country, 'nickname', a.nickname) ORDER BY ash.author_order, a.id) " +
+            "FROM authorships ash JOIN authors a ON a.id = ash.author_id WHERE ash.book_isbn = b.isbn) AS authors, " +
+            "(SELECT array_agg(s.name ORDER BY s.name) " +
+            "FROM book_styles bs JOIN styles s ON s.id = bs.style WHERE bs.book_isbn = b.isbn) AS genres " +
+            "FROM books b";
+
+    private static final String TS_QUERY = "websearch_to_tsquery('russian', :query)";
+
+    // Совпадение в названии книги весит вдвое больше, чем лучшее совпадение среди её авторов
+    private static final String FULL_TEXT_RANK = "ts_rank(b.search_vector, " + TS_QUERY + ") + 0.5 * coalesce(" +
+            "(SELECT max(ts_rank(a.search_vector, " + TS_QUERY + ")) FROM authorships ash " +
+            "JOIN authors a ON a.id = ash.author_id WHERE ash.book_isbn = b.isbn), 0)";
+
+    // Размер порции строк, которую драйвер PostgreSQL читает из курсора при потоковой выгрузке
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final TypeReference<List<AuthorDTO>> AUTHOR_LIST = new TypeReference<>() {
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    @Override
+    public List<BookDTO> findCatalogViews(String search, Collection<String> isbns, String publisher,
+                                          BookSortColumn sortColumn, boolean descending,
+                                          String afterValue, String afterIsbn, Integer limit) {
+        if (isbns != null && isbns.isEmpty()) {
+            return new ArrayList<>();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String seek = null;
+        String nullGroup = null;
+        if (afterIsbn != null) {
+            params.addValue("afterIsbn", afterIsbn);
+            params.addValue("afterValue", afterValue);
+            seek = seekPredicate(sortColumn, descending, afterValue != null);
+            nullGroup = nextGroupPredicate(sortColumn, descending, afterValue != null);
+        }
+        List<BookDTO> books = jdbcTemplate.query(
+                catalogQuery(search, isbns, publisher, sortColumn, descending, seek, limit, params), params, viewMapper());
+
+        // Страница пересекла границу между книгами со значением столбца и книгами с NULL —
+        // остаток страницы дочитывается из следующей группы отдельным запросом
+        if (nullGroup != null && (limit == null || books.size() < limit)) {
+            Integer remaining = limit != null ? limit - books.size() : null;
+            books.addAll(jdbcTemplate.query(
+                    catalogQuery(search, isbns, publisher, sortColumn, descending, nullGroup, remaining, params),
+                    params, viewMapper()));
+        }
+        return books;
+    }
+
+    @Override
+    public List<BookDTO> findCatalogViewsFullText(String query, BookSortColumn sortColumn, boolean descending) {
+        // Каждая ветка UNION читает свой GIN-индекс; условие с OR по книгам и авторам индекс бы не использовало
+        StringBuilder sql = new StringBuilder(SELECT_VIEW).append(" WHERE b.isbn IN (")
+                .append("SELECT fb.isbn FROM books fb WHERE fb.search_vector @@ ").append(TS_QUERY)
+                .append(" UNION SELECT ash.book_isbn FROM authors a JOIN authorships ash ON ash.author_id = a.id")
+                .append(" WHERE a.search_vector @@ ").append(TS_QUERY).append(")");
+
+        sql.append(" ORDER BY ");
+        if (sortColumn == null) {
+            sql.append(FULL_TEXT_RANK).append(" DESC, b.isbn");
+        } else {
+            String direction = descending ? "DESC" : "ASC";
+            if (sortColumn != BookSortColumn.ISBN) {
+                sql.append(sortColumn.getExpression()).append(' ').append(direction).append(", ");
+            }
+            sql.append("b.isbn ").append(direction);
+        }
+        return jdbcTemplate.query(sql.toString(), new MapSqlParameterSource("query", query), viewMapper());
+    }
+
+    @Override
+    public void streamCatalogViews(String search, Collection<String> isbns, BookSortColumn sortColumn,
+                                   boolean descending, Consumer<BookDTO> consumer) {
+        if (isbns != null && isbns.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = catalogQuery(search, isbns, null, sortColumn, descending, null, null, params);
+
+        // Отдельный шаблон с fetchSize: общий шаблон не меняем, чтобы не влиять на остальные запросы
+        JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streamingTemplate.setFetchSize(STREAM_FETCH_SIZE);
+
+        RowMapper<BookDTO> mapper = viewMapper();
+        new NamedParameterJdbcTemplate(streamingTemplate).query(sql, params,
+                (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, rs.getRow())));
+    }
+
+    private String catalogQuery(String search, Collection<String> isbns, String publisher, BookSortColumn sortColumn,
+                                boolean descending, String seek, Integer limit, MapSqlParameterSource params) {
+        StringBuilder sql = new StringBuilder(SELECT_VIEW).append(" WHERE 1 = 1");
+
+        if (search != null && !search.isEmpty()) {
+            sql.append(" AND lower(b.name) LIKE :pattern");
+            params.addValue("pattern", "%" + escapeLike(search.toLowerCase()) + "%");
+        }
+
+        if (isbns != null) {
+            sql.append(" AND b.isbn = ANY(:isbns)");
+            params.addValue("isbns", isbns.toArray(new String[0]));
+        }
+
+        if (publisher != null) {
+            sql.append(" AND b.publishing_company = :publisher");
+            params.addValue("publisher", publisher);
+        }
+
+        if (seek != null) {
+            sql.append(" AND ").append(seek);
+        }
+
+        String direction = descending ? "DESC" : "ASC";
+        sql.append(" ORDER BY ");
+        if (sortColumn != BookSortColumn.ISBN) {
+            sql.append(sortColumn.getExpression()).append(' ').append(direction).append(", ");
+        }
+        sql.append("b.isbn ").append(direction);
+
+        if (limit != null) {
+            sql.append(" LIMIT :limit");
+            params.addValue("limit", limit);
+        }
+        return sql.toString();
+    }
+
+    @Override
+    public List<BookDTO> findViewsByIsbns(Collection<String> isbns) {
+        if (isbns.isEmpty()) {
+            return new ArrayList<>();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("isbns", isbns.toArray(new String[0]));
+        return jdbcTemplate.query(SELECT_VIEW + " WHERE b.isbn = ANY(:isbns)", params, viewMapper());
+    }
+
+    @Override
+    public Book insert(Book book) {
+        // persist не принимает отсоединённых авторов и жанров в связях с @MapsId (их id входит в ключ связи),
+        // поэтому они заменяются ссылками текущего контекста — без чтения из базы
+        if (book.getAuthorships() != null) {
+            for (Authorship authorship : book.getAuthorships()) {
+                Author author = authorship.getAuthor();
+                if (author != null && !entityManager.contains(author)) {
+                    authorship.setAuthor(entityManager.getReference(Author.class, author.getId()));
+                }
+            }
+        }
+        if (book.getBookStyles() != null) {
+            for (BookStyles bookStyle : book.getBookStyles()) {
+                Styles style = bookStyle.getStyleEntity();
+                if (style != null && !entityManager.contains(style)) {
+                    bookStyle.setStyleEntity(entityManager.getReference(Styles.class, style.getId()));
+                }
+            }
+        }
+        entityManager.persist(book);
+        return book;
+    }
+
+    @Override
+    public PublisherSummaryDTO findPublisherSummary(String publisher) {
+        // Итоговая строка (GROUPING = 1) и строки по языкам считаются одним проходом
+        String sql = "SELECT b.language, GROUPING(b.language) AS total_row, count(*) AS titles, " +
+                "coalesce(sum(b.count_of_books), 0) AS copies, " +
+                "coalesce(sum(b.cost * b.count_of_books), 0) AS inventory_value " +
+                "FROM books b WHERE b.publishing_company = :publisher " +
+                "GROUP BY GROUPING SETS ((), (b.language)) ORDER BY total_row DESC, b.language";
+
+        PublisherSummaryDTO summary = new PublisherSummaryDTO();
+        summary.setName(publisher);
+        summary.setInventoryValue(BigDecimal.ZERO);
+        summary.setLanguages(new LinkedHashMap<>());
+        jdbcTemplate.query(sql, new MapSqlParameterSource("publisher", publisher), (RowCallbackHandler) rs -> {
+            if (rs.getInt("total_row") == 1) {
+                summary.setTitleCount(rs.getLong("titles"));
+                summary.setCopiesInStock(rs.getLong("copies"));
+                summary.setInventoryValue(rs.getBigDecimal("inventory_value"));
+            } else {
+                String language = rs.getString("language");
+                summary.getLanguages().put(language != null ? language : "", rs.getLong("titles"));
+            }
+        });
+        return summary;
+    }
+
+    @Override
+    public Map<String, BookLinks> findBookLinks(Collection<String> isbns) {
+        return bookLinks(isbns, false);
+    }
+
+    @Override
+    public Map<String, BookLinks> lockBookLinks(Collection<String> isbns) {
+        return bookLinks(isbns, true);
+    }
+
+    private Map<String, BookLinks> bookLinks(Collection<String> isbns, boolean lock) {
+        Map<String, BookLinks> links = new HashMap<>();
+        if (isbns.isEmpty()) {
+            return links;
+        }
+        // Запрос идёт мимо Hibernate: после изменения они сбрасываются в базу, а связи до изменения
+        // читаются без несохранённых изменений контекста
+        if (!lock && TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+        }
+        String sql = "SELECT b.isbn, b.publishing_company, " +
+                "ARRAY(SELECT a.author_id FROM authorships a WHERE a.book_isbn = b.isbn) AS author_ids, " +
+                "ARRAY(SELECT s.style FROM book_styles s WHERE s.book_isbn = b.isbn) AS style_ids " +
+                "FROM books b WHERE b.isbn = ANY(:isbns)" + (lock ? " FOR UPDATE OF b" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource("isbns", isbns.toArray(new String[0]));
+        jdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+            Set<Integer> authorIds = new HashSet<>();
+            for (Object id : (Object[]) rs.getArray("author_ids").getArray()) {
+                authorIds.add(((Number) id).intValue());
+            }
+            Set<Long> styleIds = new HashSet<>();
+            for (Object id : (Object[]) rs.getArray("style_ids").getArray()) {
+                styleIds.add(((Number) id).longValue());
+            }
+            links.put(rs.getString("isbn"), new BookLinks(rs.getString("publishing_company"), authorIds, styleIds));
+        });
+        return links;
+    }
+
+    /**
+     * Условие "строго после курсора" для сортировки (столбец, isbn) в пределах группы курсора —
+     * книг со значением столбца или книг с NULL.
+     * Используется сравнение кортежей, чтобы PostgreSQL мог продолжить чтение
+     * составного индекса (столбец, isbn) с нужной позиции; условие с OR по обеим группам
+     * индекс читало бы с начала и отбрасывало строки фильтром.
+     */
+    private String seekPredicate(BookSortColumn sortColumn, boolean descending, boolean hasValue) {
+        if (sortColumn == BookSortColumn.ISBN) {
+            return descending ? "b.isbn < :afterIsbn" : "b.isbn > :afterIsbn";
+        }
+        String column = sortColumn.getExpression();
+        String value = "CAST(:afterValue AS " + sortColumn.getSqlType() + ")";
+        if (hasValue) {
+            return "(" + column + ", b.isbn) " + (descending ? "<" : ">") + " (" + value + ", :afterIsbn)";
+        }
+        return "(" + column + " IS NULL AND b.isbn " + (descending ? "<" : ">") + " :afterIsbn)";
+    }
+
+    /**
+     * Условие для группы, которая идёт после группы курсора, или null, если её нет.
+     * NULL-значения PostgreSQL ставит в конец при ASC и в начало при DESC.
+     */
+    private String nextGroupPredicate(BookSortColumn sortColumn, boolean descending, boolean hasValue) {
+        if (sortColumn == BookSortColumn.ISBN || hasValue == descending) {
+            return null;
+        }
+        return sortColumn.getExpression() + (descending ? " IS NOT NULL" : " IS NULL");
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private RowMapper<BookDTO> viewMapper() {
+        return (rs, rowNum) -> {
+            BookDTO dto = new BookDTO();
+            dto.setIsbn(rs.getString("isbn"));
+            dto.setName(rs.getString("name"));
+            dto.setPublicationYear(rs.getObject("publication_year", LocalDate.class));
+            dto.setAgeLimit(rs.getFloat("age_limit"));
+            dto.setPublishingCompany(rs.getString("publishing_company"));
+            dto.setPageCount(rs.getInt("page_count"));
+            dto.setLanguage(rs.getString("language"));
+            dto.setCost(rs.getBigDecimal("cost"));
+            dto.setCountOfBooks(rs.getInt("count_of_books"));
+            dto.setAuthors(readAuthors(rs));
+            dto.setGenres(readGenres(rs));
+            return dto;
+        };
+    }
+
+    private List<AuthorDTO> readAuthors(ResultSet rs) throws SQLException {
+        String json = rs.getString("authors");
+        if (json == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return objectMapper.readValue(json, AUTHOR_LIST);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Не удалось разобрать список авторов книги " + rs.getString("isbn"), e);
+        }
+    }
+
+    private List<String> readGenres(ResultSet rs) throws SQLException {
+        Array array = rs.getArray("genres");
+        if (array == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList((String[]) array.getArray()));
+    }
+}
@@ -0,0 +1,80 @@
+package org.application.bookstorage.repository;
+
+import org.application.bookstorage.dto.AuthorDTO;
+import org.application.bookstorage.dto.BookDTO;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Столбцы, по которым может сортироваться каталог книг.
+ * Для каждого столбца известны SQL-выражение над таблицей books (алиас b), его SQL-тип
+ * (нужен для приведения значения из курсора) и способ получить значение из BookDTO.
+ */
+public enum BookSortColumn {
+    NAME("b.name", "text", BookDTO::getName),
+    PUBLICATION_YEAR("b.publication_year", "date", BookDTO::getPublicationYear),
+    PUBLISHING_COMPANY("b.publishing_company", "text", BookDTO::getPublishingCompany),
+    COUNT_OF_BOOKS("b.count_of_books", "integer", BookDTO::getCountOfBooks),
+    // Основной автор — автор с наименьшим author_order (при равенстве — с наименьшим id);
+    // столбец поддерживается триггерами (schema.sql) и индексирован вместе с isbn.
+    // Книги без авторов имеют значение NULL.
+    AUTHOR("b.primary_author", "text", BookSortColumn::primaryAuthorFio),
+    ISBN("b.isbn", "text", BookDTO::getIsbn);
+
+    private final String expression;
+    private final String sqlType;
+    private final Function<BookDTO, Object> extractor;
+
+    BookSortColumn(String expression, String sqlType, Function<BookDTO, Object> extractor) {
+        this.expression = expression;
+        this.sqlType = sqlType;
+        this.extractor = extractor;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public String getSqlType() {
+        return sqlType;
+    }
+
+    /**
+     * Значение ключа сортировки книги в строковом виде (null, если значение отсутствует).
+     */
+    public String extractValue(BookDTO book) {
+        Object value = extractor.apply(book);
+        return value != null ? value.toString() : null;
+    }
+
+    // Авторы в BookDTO уже упорядочены по author_order, поэтому основной автор — первый в списке
+    private static Object primaryAuthorFio(BookDTO book) {
+        List<AuthorDTO> authors = book.getAuthors();
+        return authors == null || authors.isEmpty() ? null : authors.get(0).getFio();
+    }
+
+    /**
+     * Преобразует параметр запроса sort_column в столбец сортировки.
+     * Пустые и неизвестные значения означают сортировку по названию.
+     */
+    public static BookSortColumn fromParameter(String sortColumn) {
+        if (sortColumn == null || sortColumn.isEmpty()) {
+            return NAME;
+        }
+        switch (sortColumn) {
+            case "author":
+                return AUTHOR;
+            case "publication_year":
+                return PUBLICATION_YEAR;
+            case "publishing_company":
+                return PUBLISHING_COMPANY;
+            case "count_of_books":
+                return COUNT_OF_BOOKS;
+            case "isbn":
+                return ISBN;
+            default:
+                return NAME;
+        }
+    }
+}
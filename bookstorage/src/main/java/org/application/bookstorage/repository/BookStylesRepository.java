@@ -3,9 +3,37 @@ package org.application.bookstorage.repository;
 import org.application.bookstorage.dao.BookStyles;
 import org.application.bookstorage.dao.BookStylesId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface BookStylesRepository extends JpaRepository<BookStyles, BookStylesId> {
+    /**
+     * Количество книг каждого жанра.
+     *
+     * @return Пары [id жанра, количество книг]; жанры без книг не возвращаются.
+     */
+    @Query("select bs.id.style, count(bs) from BookStyles bs group by bs.id.style")
+    List<Object[]> countBooksByStyle();
+
+    /**
+     * ISBN книг жанра (по индексу idx_book_styles_style_book).
+     *
+     * @param styleId Идентификатор жанра.
+     * @return Список ISBN книг жанра.
+     */
+    @Query("select bs.id.bookIsbn from BookStyles bs where bs.id.style = :styleId")
+    List<String> findBookIsbnsByStyleId(@Param("styleId") Long styleId);
+
+    /**
+     * Ключи всех связей книг с жанрами (для поиска повторов при импорте CSV).
+     *
+     * @return Пары [ISBN книги, id жанра].
+     */
+    @Query("select bs.id.bookIsbn, bs.id.style from BookStyles bs")
+    List<Object[]> findAllKeys();
     // Дополнительные методы поиска при необходимости
 }
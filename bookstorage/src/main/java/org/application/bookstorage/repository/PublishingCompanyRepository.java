@@ -1,7 +1,12 @@
 package org.application.bookstorage.repository;
 
+import jakarta.persistence.QueryHint;
 import org.application.bookstorage.dao.PublishingCompany;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,11 +15,18 @@ import java.util.Optional;
 @Repository
 public interface PublishingCompanyRepository extends JpaRepository<PublishingCompany, String> {
 
+    // Список издательств берётся из кэша запросов Hibernate, пока не изменится таблица publishing_companies
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<PublishingCompany> findAll();
+
     Optional<PublishingCompany> findByName(String name);
 
     void deleteByName(String name);
 
-    List<PublishingCompany> findByNameContainingIgnoreCase(String name);
+    // Поиск по подстроке названия без учёта регистра; использует триграммный индекс idx_publishing_companies_name_trgm (schema.sql)
+    @Query("select p from PublishingCompany p where lower(p.name) like lower(concat('%', :#{escape(#name)}, '%')) escape :#{escapeCharacter()}")
+    List<PublishingCompany> findByNameContainingIgnoreCase(@Param("name") String name);
     // Дополнительные методы поиска при необходимости
 }
 
@@ -1,7 +1,12 @@
 package org.application.bookstorage.repository;
 
+import jakarta.persistence.QueryHint;
 import org.application.bookstorage.dao.Styles;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,6 +14,14 @@ import java.util.Optional;
 
 @Repository
 public interface StylesRepository extends JpaRepository<Styles, Long> {
+
+    /**
+     * Все жанры. Результат хранится в кэше запросов Hibernate до изменения таблицы styles.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Styles> findAll();
+
     /**
      * Найти жанр по точному названию (игнорируя регистр).
      *
@@ -19,10 +32,20 @@ public interface StylesRepository extends JpaRepository<Styles, Long> {
 
     /**
      * Найти жанр, название которого содержит заданную строку (игнорируя регистр).
+     * Использует триграммный индекс idx_styles_name_trgm (schema.sql).
      *
      * @param name Подстрока для поиска в названии жанра.
      * @return Список жанров.
      */
-    List<Styles> findByNameContainingIgnoreCase(String name);
+    @Query("select s from Styles s where lower(s.name) like lower(concat('%', :#{escape(#name)}, '%')) escape :#{escapeCharacter()}")
+    List<Styles> findByNameContainingIgnoreCase(@Param("name") String name);
+
+    /**
+     * Идентификаторы всех жанров (для проверки ссылок при импорте CSV).
+     *
+     * @return Список идентификаторов.
+     */
+    @Query("select s.id from Styles s")
+    List<Long> findAllIds();
     // Дополнительные методы поиска при необходимости
 }
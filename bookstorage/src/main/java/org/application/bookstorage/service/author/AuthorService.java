@@ -15,4 +15,7 @@ public interface AuthorService {
     void deleteAuthors(List<Integer> authorIds, boolean removeEverything);
 
     List<Author> searchAuthors(String query); // Метод поиска по ФИО и псевдониму
+
+    // Поиск по ФИО и псевдониму с опечатками (не более maxDistance правок), по возрастанию расстояния
+    List<Author> searchAuthorsFuzzy(String query, int maxDistance);
 }
@@ -3,13 +3,18 @@ package org.application.bookstorage.service.author;
 import lombok.AllArgsConstructor;
 import org.application.bookstorage.dao.Author;
 import org.application.bookstorage.dao.Book;
+import org.application.bookstorage.event.CatalogChangedEvent;
 import org.application.bookstorage.repository.AuthorRepository;
 import org.application.bookstorage.repository.BookRepository;
+import org.application.bookstorage.service.search.CatalogSearchIndex;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -24,6 +29,8 @@ public class AuthorServiceImpl implements AuthorService {
 
     private final AuthorRepository authorRepository;
     private final BookRepository bookRepository;
+    private final CatalogSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     // LOGGING ADDED
     private static final Logger logger = LoggerFactory.getLogger(AuthorServiceImpl.class);
@@ -34,6 +41,7 @@ public class AuthorServiceImpl implements AuthorService {
         logger.info("Создание автора: {}", author);
 
         Author saved = authorRepository.save(author);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(CatalogChangedEvent.Entity.AUTHOR, saved.getId()));
 
         // LOGGING ADDED
         logger.info("Автор сохранён с ID: {}", saved.getId());
@@ -72,6 +80,7 @@ public class AuthorServiceImpl implements AuthorService {
         author.setNickname(authorDetails.getNickname());
 
         Author updated = authorRepository.save(author);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(CatalogChangedEvent.Entity.AUTHOR, id));
 
         // LOGGING ADDED
         logger.info("Автор с ID {} успешно обновлён", id);
@@ -86,6 +95,7 @@ public class AuthorServiceImpl implements AuthorService {
         Author author = authorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Автор не найден с id " + id));
         authorRepository.delete(author);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(CatalogChangedEvent.Entity.AUTHOR, id));
 
         // LOGGING ADDED
         logger.info("Автор с ID {} удалён", id);
@@ -95,6 +105,9 @@ public class AuthorServiceImpl implements AuthorService {
     public List<Author> searchAuthorsByFio(String fio) {
         // LOGGING ADDED
         logger.info("Поиск авторов по ФИО (ignoring case) содержащему: {}", fio);
+        if (searchIndex.isReady()) {
+            return searchIndex.searchAuthorsByFio(fio);
+        }
         return authorRepository.findByFioContainingIgnoreCase(fio);
     }
 
@@ -102,6 +115,20 @@ public class AuthorServiceImpl implements AuthorService {
     public List<Author> searchAuthors(String query) {
         // LOGGING ADDED
         logger.info("Поиск авторов по ФИО или псевдониму содержащим: {}", query);
+        if (searchIndex.isReady()) {
+            return searchIndex.searchAuthors(query);
+        }
+        return authorRepository.findByFioContainingIgnoreCaseOrNicknameContainingIgnoreCase(query, query);
+    }
+
+    @Override
+    public List<Author> searchAuthorsFuzzy(String query, int maxDistance) {
+        // LOGGING ADDED
+        logger.info("Поиск авторов с опечатками (расстояние до {}): {}", maxDistance, query);
+        if (searchIndex.isReady()) {
+            return searchIndex.searchAuthorsFuzzy(query, maxDistance);
+        }
+        // Пока индекс не построен, доступен только поиск по подстроке
         return authorRepository.findByFioContainingIgnoreCaseOrNicknameContainingIgnoreCase(query, query);
     }
 
@@ -132,6 +159,7 @@ public class AuthorServiceImpl implements AuthorService {
         }
 
         // Удаляем книги, у которых после удаления авторов больше не останется авторов
+        List<String> deletedIsbns = new ArrayList<>();
         for (Book book : booksToCheck) {
             int totalAuthors = book.getAuthorships().size();
             long authorsToRemoveInThisBook = book.getAuthorships().stream()
@@ -141,11 +169,19 @@ public class AuthorServiceImpl implements AuthorService {
                 // LOGGING ADDED
                 logger.info("Книга ISBN={} не будет иметь авторов после удаления, удаляем книгу.", book.getIsbn());
                 bookRepository.delete(book);
+                deletedIsbns.add(book.getIsbn());
             }
         }
+        // Удаление ещё не сброшено в базу — читаются связи книг до него
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(deletedIsbns);
 
         // Удаляем авторов
         authorRepository.deleteAll(authors);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(CatalogChangedEvent.Entity.AUTHOR, authorIds));
+        if (!deletedIsbns.isEmpty()) {
+            eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(deletedIsbns, before,
+                    bookRepository.findBookLinks(deletedIsbns)));
+        }
 
         // LOGGING ADDED
         logger.info("Авторы успешно удалены по списку ID: {}", authorIds);
@@ -3,11 +3,16 @@ package org.application.bookstorage.service.authorship;
 import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.Authorship;
 import org.application.bookstorage.dao.AuthorshipId;
+import org.application.bookstorage.event.CatalogChangedEvent;
 import org.application.bookstorage.repository.AuthorshipRepository;
+import org.application.bookstorage.repository.BookRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 // LOGGING ADDED
@@ -20,6 +25,8 @@ import org.slf4j.LoggerFactory;
 public class AuthorshipServiceImpl implements AuthorshipService {
 
     private final AuthorshipRepository authorshipRepository;
+    private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // LOGGING ADDED
     private static final Logger logger = LoggerFactory.getLogger(AuthorshipServiceImpl.class);
@@ -28,7 +35,13 @@ public class AuthorshipServiceImpl implements AuthorshipService {
     public Authorship createAuthorship(Authorship authorship) {
         // LOGGING ADDED
         logger.info("Создание авторства: {}", authorship);
-        return authorshipRepository.save(authorship);
+        List<String> isbns = List.of(authorship.getId().getBookIsbn());
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
+        // Новый автор добавляется в конец списка авторов книги
+        authorship.setAuthorOrder(authorshipRepository.findNextAuthorOrder(authorship.getId().getBookIsbn()));
+        Authorship created = authorshipRepository.save(authorship);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
+        return created;
     }
 
     @Override
@@ -54,10 +67,15 @@ public class AuthorshipServiceImpl implements AuthorshipService {
 
         Authorship authorship = authorshipRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Авторство не найдено с id " + id));
+        String oldIsbn = authorship.getId().getBookIsbn();
+        List<String> isbns = Arrays.asList(oldIsbn, authorshipDetails.getBook().getIsbn());
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
         authorship.setBook(authorshipDetails.getBook());
         authorship.setAuthor(authorshipDetails.getAuthor());
 
         Authorship updated = authorshipRepository.save(authorship);
+        // Изменились списки авторов прежней и новой книги
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
 
         // LOGGING ADDED
         logger.info("Авторство с ключом {} успешно обновлено", id);
@@ -71,7 +89,10 @@ public class AuthorshipServiceImpl implements AuthorshipService {
 
         Authorship authorship = authorshipRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Авторство не найдено с id " + id));
+        List<String> isbns = List.of(id.getBookIsbn());
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
         authorshipRepository.delete(authorship);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
 
         // LOGGING ADDED
         logger.info("Авторство с ключом {} удалено", id);
@@ -0,0 +1,49 @@
+package org.application.bookstorage.service.book;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.application.bookstorage.repository.BookSortColumn;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор постраничного вывода каталога.
+ * Хранит параметры сортировки, значение ключа сортировки и ISBN последней выданной книги.
+ * Клиент получает его в виде строки Base64 (URL-safe) и передаёт обратно в параметре after.
+ */
+@Getter
+@AllArgsConstructor
+public class BookCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final BookSortColumn sortColumn;
+    private final boolean descending;
+    private final String value;
+    private final String isbn;
+
+    public String encode() {
+        String raw = sortColumn.name() + SEPARATOR
+                + (descending ? "desc" : "asc") + SEPARATOR
+                + isbn
+                + (value != null ? SEPARATOR + value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length < 3 || parts[2].isEmpty()) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+            }
+            BookSortColumn sortColumn = BookSortColumn.valueOf(parts[0]);
+            boolean descending = "desc".equals(parts[1]);
+            String value = parts.length == 4 ? parts[3] : null;
+            return new BookCursor(sortColumn, descending, value, parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor, e);
+        }
+    }
+}
@@ -1,14 +1,40 @@
 package org.application.bookstorage.service.book;
 
 import org.application.bookstorage.dao.Book;
+import org.application.bookstorage.dto.BookDTO;
+import org.application.bookstorage.dto.BookFacetsDTO;
+import org.application.bookstorage.dto.BookLookupDTO;
+import org.application.bookstorage.dto.BookPageDTO;
+import org.application.bookstorage.service.facet.BookFacetFilter;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
     Book createBook(Book book);
     Optional<Book> getBookByIsbn(String isbn);
-    List<Book> getAllBooks(String search, String sortColumn, String sortOrder);
+
+    // Методы чтения для списков и карточки книги: данные читаются проекцией, без загрузки сущностей
+    Optional<BookDTO> getBookViewByIsbn(String isbn);
+    // mode: substring (по умолчанию) — поиск подстроки в названии, fts — полнотекстовый поиск
+    // по названию, издательству и авторам с учётом морфологии, без sort_column — по релевантности
+    List<BookDTO> getAllBooks(String search, String mode, String sortColumn, String sortOrder);
+    // Пакетное получение книг по списку ISBN одним запросом (сканеры касс и склада)
+    BookLookupDTO lookupBooks(List<String> isbns);
+    BookPageDTO getBooksPage(String search, String sortColumn, String sortOrder, int limit, String after);
+    // Потоковое чтение всего каталога: книги передаются обработчику по одной, список в памяти не строится
+    void streamAllBooks(String search, String sortColumn, String sortOrder, Consumer<BookDTO> consumer);
+    // Фасетный фильтр каталога: отфильтрованный список и количество книг по значениям фасетов
+    List<BookDTO> getFilteredBooks(BookFacetFilter filter, String sortColumn, String sortOrder);
+    BookFacetsDTO getFacets(BookFacetFilter filter);
+    // Книги одного автора (сортировка и пагинация как в каталоге)
+    List<BookDTO> getBooksByAuthor(int authorId, String search, String sortColumn, String sortOrder);
+    BookPageDTO getBooksByAuthorPage(int authorId, String search, String sortColumn, String sortOrder, int limit, String after);
+    // Книги одного издательства (сортировка и пагинация как в каталоге)
+    List<BookDTO> getBooksByPublisher(String publisher, String search, String sortColumn, String sortOrder);
+    BookPageDTO getBooksByPublisherPage(String publisher, String search, String sortColumn, String sortOrder, int limit, String after);
+
     Book updateBook(String isbn, Book book);
     void deleteBook(String isbn);
 
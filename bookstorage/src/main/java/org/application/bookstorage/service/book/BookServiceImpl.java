@@ -2,14 +2,31 @@ package org.application.bookstorage.service.book;
 
 import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.Book;
+import org.application.bookstorage.dto.BookDTO;
+import org.application.bookstorage.dto.BookFacetsDTO;
+import org.application.bookstorage.dto.BookLookupDTO;
+import org.application.bookstorage.dto.BookPageDTO;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.AuthorshipRepository;
 import org.application.bookstorage.repository.BookRepository;
-import org.springframework.data.domain.Sort;
+import org.application.bookstorage.repository.BookSortColumn;
+import org.application.bookstorage.service.facet.BookFacetFilter;
+import org.application.bookstorage.service.facet.BookFacetIndex;
+import org.application.bookstorage.service.isbn.IsbnBloomFilter;
+import org.application.bookstorage.service.search.CatalogSearchIndex;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 // LOGGING ADDED
 import org.slf4j.Logger;
@@ -20,7 +37,21 @@ import org.slf4j.LoggerFactory;
 @Transactional
 public class BookServiceImpl implements BookService {
 
+    // Максимальный размер страницы в постраничном режиме
+    private static final int MAX_PAGE_SIZE = 500;
+
+    // Максимальное количество ISBN в одном пакетном запросе
+    private static final int MAX_LOOKUP_SIZE = 500;
+
+    // Максимальное количество ISBN из индексов в памяти (поиск, фасеты), передаваемых в SQL-запрос
+    private static final int MAX_QUERY_ISBNS = 1000;
+
     private final BookRepository bookRepository;
+    private final AuthorshipRepository authorshipRepository;
+    private final CatalogSearchIndex searchIndex;
+    private final BookFacetIndex facetIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IsbnBloomFilter isbnFilter;
 
     // LOGGING ADDED
     private static final Logger logger = LoggerFactory.getLogger(BookServiceImpl.class);
@@ -29,7 +60,13 @@ public class BookServiceImpl implements BookService {
     public Book createBook(Book book) {
         // LOGGING ADDED
         logger.info("Создание книги: {}", book);
-        Book saved = bookRepository.save(book);
+        // Если книги с таким ISBN точно нет, она вставляется без предварительного SELECT (merge в save())
+        List<String> isbns = List.of(book.getIsbn());
+        boolean mightExist = isbnFilter.mightContain(book.getIsbn());
+        Map<String, CatalogChangedEvent.BookLinks> before = mightExist ? bookRepository.lockBookLinks(isbns) : Map.of();
+        Book saved = mightExist ? bookRepository.save(book) : bookRepository.insert(book);
+        isbnFilter.add(saved.getIsbn());
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
         logger.info("Книга сохранена: ISBN={}", saved.getIsbn());
         return saved;
     }
@@ -38,70 +75,265 @@ public class BookServiceImpl implements BookService {
     public Optional<Book> getBookByIsbn(String isbn) {
         // LOGGING ADDED
         logger.info("Получение книги по ISBN: {}", isbn);
-        return bookRepository.findById(isbn);
+        if (!isbnFilter.mightContain(isbn)) {
+            return Optional.empty();
+        }
+        Optional<Book> book = bookRepository.findById(isbn);
+        if (book.isEmpty()) {
+            isbnFilter.recordFalsePositive();
+        }
+        return book;
     }
 
     @Override
-    public List<Book> getAllBooks(String search, String sortColumn, String sortOrder) {
+    public Optional<BookDTO> getBookViewByIsbn(String isbn) {
         // LOGGING ADDED
-        logger.info("Получение всех книг (search='{}', sortColumn='{}', sortOrder='{}')", search, sortColumn, sortOrder);
+        logger.info("Получение представления книги по ISBN: {}", isbn);
+        return bookRepository.findViewsByIsbns(List.of(isbn)).stream().findFirst();
+    }
 
-        Sort sort = Sort.unsorted();
-        boolean sortByAuthor = false;
+    @Override
+    public BookLookupDTO lookupBooks(List<String> isbns) {
+        // LOGGING ADDED
+        logger.info("Пакетное получение книг по {} ISBN", isbns.size());
 
-        if (sortColumn != null && !sortColumn.isEmpty()) {
-            if ("author".equalsIgnoreCase(sortColumn)) {
-                sortByAuthor = true;
-            } else {
-                Sort.Direction direction = "desc".equalsIgnoreCase(sortOrder) ? Sort.Direction.DESC : Sort.Direction.ASC;
-                sort = Sort.by(direction, mapSortColumn(sortColumn));
+        // Повторяющиеся ISBN (один товар несколько раз в корзине) запрашиваются один раз
+        Set<String> requested = new LinkedHashSet<>();
+        for (String isbn : isbns) {
+            if (isbn != null && !isbn.isBlank()) {
+                requested.add(isbn.trim());
             }
         }
+        if (requested.size() > MAX_LOOKUP_SIZE) {
+            throw new IllegalArgumentException("В одном запросе можно передать не больше " + MAX_LOOKUP_SIZE + " ISBN");
+        }
 
-        List<Book> books;
-        if (search != null && !search.isEmpty()) {
-            // LOGGING ADDED
-            logger.info("Поиск книг по названию, содержащему '{}'", search);
-            books = bookRepository.findByNameContainingIgnoreCase(search, sort);
-        } else {
-            books = bookRepository.findAll(sort);
+        // В запрос попадают только ISBN, которые могут быть в каталоге
+        List<String> candidates = new ArrayList<>();
+        for (String isbn : requested) {
+            if (isbnFilter.mightContain(isbn)) {
+                candidates.add(isbn);
+            }
+        }
+        Map<String, BookDTO> found = new HashMap<>();
+        for (BookDTO book : bookRepository.findViewsByIsbns(candidates)) {
+            found.put(book.getIsbn(), book);
+        }
+        for (int i = found.size(); i < candidates.size(); i++) {
+            isbnFilter.recordFalsePositive();
         }
 
-        if (sortByAuthor) {
-            // LOGGING ADDED
-            logger.info("Дополнительная сортировка по первому автору");
-            Comparator<Book> comparator = Comparator.comparing(book -> {
-                if (book.getAuthorships() != null && !book.getAuthorships().isEmpty()) {
-                    return book.getAuthorships().iterator().next().getAuthor().getFio();
-                } else {
-                    return "";
-                }
-            }, String.CASE_INSENSITIVE_ORDER);
-            if ("desc".equalsIgnoreCase(sortOrder)) {
-                comparator = comparator.reversed();
+        BookLookupDTO result = new BookLookupDTO();
+        result.setBooks(new ArrayList<>());
+        result.setMissing(new ArrayList<>());
+        for (String isbn : requested) {
+            BookDTO book = found.get(isbn);
+            if (book != null) {
+                result.getBooks().add(book);
+            } else {
+                result.getMissing().add(isbn);
             }
-            books.sort(comparator);
         }
 
+        logger.info("Найдено {} книг, не найдено {}", result.getBooks().size(), result.getMissing().size());
+        return result;
+    }
+
+    @Override
+    public List<BookDTO> getAllBooks(String search, String mode, String sortColumn, String sortOrder) {
+        // LOGGING ADDED
+        logger.info("Получение всех книг (search='{}', mode='{}', sortColumn='{}', sortOrder='{}')",
+                search, mode, sortColumn, sortOrder);
+
+        boolean descending = "desc".equalsIgnoreCase(sortOrder);
+        BookSortColumn column = BookSortColumn.fromParameter(sortColumn);
+
+        if (SearchMode.fromParameter(mode) == SearchMode.FTS) {
+            if (search != null && !search.isBlank()) {
+                List<BookDTO> books = bookRepository.findCatalogViewsFullText(search,
+                        sortColumn == null || sortColumn.isEmpty() ? null : column, descending);
+
+                logger.info("Полнотекстовый поиск нашёл {} книг", books.size());
+                return books;
+            }
+        }
+
+        // Сортировка (в том числе по основному автору) выполняется в PostgreSQL
+        Collection<String> isbns = searchIsbns(search);
+        List<BookDTO> books = bookRepository.findCatalogViews(isbns != null ? null : search, isbns, null,
+                column, descending, null, null, null);
+
         logger.info("Найдено {} книг после сортировки/фильтрации", books.size());
         return books;
     }
 
-    private String mapSortColumn(String sortColumn) {
-        switch (sortColumn) {
-            case "name":
-                return "name";
-            case "publication_year":
-                return "publicationYear";
-            case "publishing_company":
-                return "publishingCompany.name";
-            case "count_of_books":
-                return "countOfBooks";
-            case "isbn":
-                return "isbn";
-            default:
-                return "name";
+    @Override
+    // Курсор PostgreSQL работает только внутри транзакции; readOnly — чтобы Hibernate не делал flush.
+    // У jakarta.transaction.Transactional, которым помечен класс, атрибута readOnly нет, поэтому здесь
+    // аннотация Spring — по полному имени, чтобы не конфликтовать с импортом jakarta
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public void streamAllBooks(String search, String sortColumn, String sortOrder, Consumer<BookDTO> consumer) {
+        // LOGGING ADDED
+        logger.info("Потоковая выгрузка книг (search='{}', sortColumn='{}', sortOrder='{}')", search, sortColumn, sortOrder);
+
+        boolean descending = "desc".equalsIgnoreCase(sortOrder);
+        BookSortColumn column = BookSortColumn.fromParameter(sortColumn);
+
+        int[] count = {0};
+        Collection<String> isbns = searchIsbns(search);
+        bookRepository.streamCatalogViews(isbns != null ? null : search, isbns, column, descending, book -> {
+            consumer.accept(book);
+            count[0]++;
+        });
+
+        logger.info("Потоковая выгрузка завершена, передано {} книг", count[0]);
+    }
+
+    @Override
+    public List<BookDTO> getFilteredBooks(BookFacetFilter filter, String sortColumn, String sortOrder) {
+        // LOGGING ADDED
+        logger.info("Получение книг по фильтру {} (sortColumn='{}', sortOrder='{}')", filter, sortColumn, sortOrder);
+
+        boolean descending = "desc".equalsIgnoreCase(sortOrder);
+        BookSortColumn column = BookSortColumn.fromParameter(sortColumn);
+
+        // Фильтр вычисляется по битовым картам в памяти, из базы читаются только найденные книги
+        Set<String> isbns = facetIndex.filterIsbns(filter);
+        List<BookDTO> books;
+        if (isbns.size() <= MAX_QUERY_ISBNS) {
+            books = bookRepository.findCatalogViews(null, isbns, null, column, descending, null, null, null);
+        } else {
+            // Широкий фильтр не передаётся в запрос массивом ISBN: каталог читается курсором
+            // в порядке сортировки (по индексу столбца сортировки), найденные книги отбираются в памяти
+            List<BookDTO> matched = new ArrayList<>();
+            bookRepository.streamCatalogViews(null, null, column, descending, book -> {
+                if (isbns.contains(book.getIsbn())) {
+                    matched.add(book);
+                }
+            });
+            books = matched;
         }
+
+        logger.info("По фильтру найдено {} книг", books.size());
+        return books;
+    }
+
+    @Override
+    public BookFacetsDTO getFacets(BookFacetFilter filter) {
+        // LOGGING ADDED
+        logger.info("Подсчёт фасетов по фильтру {}", filter);
+        return facetIndex.facets(filter);
+    }
+
+    @Override
+    public BookPageDTO getBooksPage(String search, String sortColumn, String sortOrder, int limit, String after) {
+        // LOGGING ADDED
+        logger.info("Получение страницы книг (search='{}', sortColumn='{}', sortOrder='{}', limit={}, after='{}')",
+                search, sortColumn, sortOrder, limit, after);
+
+        Collection<String> isbns = searchIsbns(search);
+        return readPage(isbns != null ? null : search, isbns, null, sortColumn, sortOrder, limit, after);
+    }
+
+    @Override
+    public List<BookDTO> getBooksByAuthor(int authorId, String search, String sortColumn, String sortOrder) {
+        // LOGGING ADDED
+        logger.info("Получение книг автора ID={} (search='{}', sortColumn='{}', sortOrder='{}')",
+                authorId, search, sortColumn, sortOrder);
+
+        boolean descending = "desc".equalsIgnoreCase(sortOrder);
+        BookSortColumn column = BookSortColumn.fromParameter(sortColumn);
+
+        Collection<String> found = searchIsbns(search);
+        List<BookDTO> books = bookRepository.findCatalogViews(found != null ? null : search, authorIsbns(authorId, found), null,
+                column, descending, null, null, null);
+
+        logger.info("У автора ID={} найдено {} книг", authorId, books.size());
+        return books;
+    }
+
+    @Override
+    public BookPageDTO getBooksByAuthorPage(int authorId, String search, String sortColumn, String sortOrder,
+                                            int limit, String after) {
+        // LOGGING ADDED
+        logger.info("Получение страницы книг автора ID={} (search='{}', sortColumn='{}', sortOrder='{}', limit={}, after='{}')",
+                authorId, search, sortColumn, sortOrder, limit, after);
+
+        Collection<String> found = searchIsbns(search);
+        return readPage(found != null ? null : search, authorIsbns(authorId, found), null, sortColumn, sortOrder, limit, after);
+    }
+
+    @Override
+    public List<BookDTO> getBooksByPublisher(String publisher, String search, String sortColumn, String sortOrder) {
+        // LOGGING ADDED
+        logger.info("Получение книг издательства '{}' (search='{}', sortColumn='{}', sortOrder='{}')",
+                publisher, search, sortColumn, sortOrder);
+
+        boolean descending = "desc".equalsIgnoreCase(sortOrder);
+        BookSortColumn column = BookSortColumn.fromParameter(sortColumn);
+
+        Collection<String> isbns = searchIsbns(search);
+        List<BookDTO> books = bookRepository.findCatalogViews(isbns != null ? null : search, isbns, publisher,
+                column, descending, null, null, null);
+
+        logger.info("У издательства '{}' найдено {} книг", publisher, books.size());
+        return books;
+    }
+
+    @Override
+    public BookPageDTO getBooksByPublisherPage(String publisher, String search, String sortColumn, String sortOrder,
+                                               int limit, String after) {
+        // LOGGING ADDED
+        logger.info("Получение страницы книг издательства '{}' (search='{}', sortColumn='{}', sortOrder='{}', limit={}, after='{}')",
+                publisher, search, sortColumn, sortOrder, limit, after);
+
+        Collection<String> isbns = searchIsbns(search);
+        return readPage(isbns != null ? null : search, isbns, publisher, sortColumn, sortOrder, limit, after);
+    }
+
+    /**
+     * Страница каталога с keyset-пагинацией.
+     *
+     * @param search    Подстрока для поиска в SQL (null, если поиск уже учтён в isbns).
+     * @param isbns     Ограничение выборки по ISBN (null — без ограничения).
+     * @param publisher Ограничение выборки по издательству (null — без ограничения).
+     */
+    private BookPageDTO readPage(String search, Collection<String> isbns, String publisher, String sortColumn,
+                                 String sortOrder, int limit, String after) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+
+        BookSortColumn column = BookSortColumn.fromParameter(sortColumn);
+        boolean descending = "desc".equalsIgnoreCase(sortOrder);
+
+        BookCursor cursor = null;
+        if (after != null && !after.isEmpty()) {
+            cursor = BookCursor.decode(after);
+            if (cursor.getSortColumn() != column || cursor.isDescending() != descending) {
+                throw new IllegalArgumentException("Курсор не соответствует параметрам сортировки");
+            }
+        }
+
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        List<BookDTO> books = bookRepository.findCatalogViews(search, isbns, publisher, column, descending,
+                cursor != null ? cursor.getValue() : null,
+                cursor != null ? cursor.getIsbn() : null,
+                limit + 1);
+        boolean hasMore = books.size() > limit;
+        if (hasMore) {
+            books = books.subList(0, limit);
+        }
+
+        BookPageDTO page = new BookPageDTO();
+        page.setBooks(books);
+        if (hasMore) {
+            BookDTO last = books.get(books.size() - 1);
+            page.setNextCursor(new BookCursor(column, descending, column.extractValue(last), last.getIsbn()).encode());
+        }
+
+        logger.info("Возвращена страница из {} книг, следующая страница: {}", books.size(), hasMore);
+        return page;
     }
 
     @Override
@@ -111,6 +343,8 @@ public class BookServiceImpl implements BookService {
 
         Book book = bookRepository.findById(isbn)
                 .orElseThrow(() -> new RuntimeException("Книга не найдена с ISBN " + isbn));
+        List<String> isbns = List.of(isbn);
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
 
         book.setName(bookDetails.getName());
         book.setPublicationYear(bookDetails.getPublicationYear());
@@ -122,6 +356,7 @@ public class BookServiceImpl implements BookService {
         book.setCountOfBooks(bookDetails.getCountOfBooks());
 
         Book updated = bookRepository.save(book);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
 
         // LOGGING ADDED
         logger.info("Книга ISBN={} успешно обновлена", isbn);
@@ -135,7 +370,10 @@ public class BookServiceImpl implements BookService {
 
         Book book = bookRepository.findById(isbn)
                 .orElseThrow(() -> new RuntimeException("Книга не найдена с ISBN " + isbn));
+        List<String> isbns = List.of(isbn);
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
         bookRepository.delete(book);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
 
         // LOGGING ADDED
         logger.info("Книга ISBN={} удалена", isbn);
@@ -152,9 +390,34 @@ public class BookServiceImpl implements BookService {
             logger.warn("Некоторые книги из списка {} не найдены", isbns);
             throw new RuntimeException("Некоторые книги не найдены для удаления.");
         }
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
         bookRepository.deleteAll(books);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
 
         // LOGGING ADDED
         logger.info("Книги успешно удалены по списку ISBN: {}", isbns);
     }
+
+    /**
+     * ISBN книг, название которых содержит подстроку search, по поисковому индексу в памяти.
+     * null — поиск не задан, индекс ещё не построен или запрос слишком широкий (короткий
+     * либо совпадает больше чем с MAX_QUERY_ISBNS книгами): тогда фильтрация выполняется в SQL
+     * по триграммному индексу, и keyset-пагинация не получает длинный массив ISBN.
+     */
+    private Collection<String> searchIsbns(String search) {
+        if (search == null || search.isBlank() || !searchIndex.isReady()) {
+            return null;
+        }
+        return searchIndex.searchBookIsbns(search, MAX_QUERY_ISBNS);
+    }
+
+    // ISBN книг автора (по индексу idx_authorships_author_book),
+    // пересечённые с результатом поиска, если он выполнен по индексу в памяти
+    private Collection<String> authorIsbns(int authorId, Collection<String> found) {
+        Set<String> isbns = new LinkedHashSet<>(authorshipRepository.findBookIsbnsByAuthorId(authorId));
+        if (found != null) {
+            isbns.retainAll(found);
+        }
+        return isbns;
+    }
 }
@@ -0,0 +1,27 @@
+package org.application.bookstorage.service.book;
+
+/**
+ * Режим поиска списка книг (параметр mode запроса GET /api/books).
+ */
+public enum SearchMode {
+    // Поиск подстроки в названии
+    SUBSTRING,
+    // Полнотекстовый поиск по названию, издательству и авторам с учётом морфологии
+    FTS;
+
+    /**
+     * Преобразует параметр запроса mode в режим поиска.
+     * Пустое значение означает поиск подстроки.
+     *
+     * @throws IllegalArgumentException для неизвестного режима.
+     */
+    public static SearchMode fromParameter(String mode) {
+        if (mode == null || mode.isEmpty() || "substring".equalsIgnoreCase(mode)) {
+            return SUBSTRING;
+        }
+        if ("fts".equalsIgnoreCase(mode)) {
+            return FTS;
+        }
+        throw new IllegalArgumentException("Неизвестный режим поиска: " + mode);
+    }
+}
@@ -3,11 +3,16 @@ package org.application.bookstorage.service.bookstyles;
 import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.BookStyles;
 import org.application.bookstorage.dao.BookStylesId;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.BookRepository;
 import org.application.bookstorage.repository.BookStylesRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 // LOGGING ADDED
@@ -20,6 +25,8 @@ import org.slf4j.LoggerFactory;
 public class BookStylesServiceImpl implements BookStylesService {
 
     private final BookStylesRepository bookStylesRepository;
+    private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // LOGGING ADDED
     private static final Logger logger = LoggerFactory.getLogger(BookStylesServiceImpl.class);
@@ -28,7 +35,11 @@ public class BookStylesServiceImpl implements BookStylesService {
     public BookStyles createBookStyles(BookStyles bookStyles) {
         // LOGGING ADDED
         logger.info("Создание связи BookStyles: {}", bookStyles);
-        return bookStylesRepository.save(bookStyles);
+        List<String> isbns = List.of(bookStyles.getId().getBookIsbn());
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
+        BookStyles saved = bookStylesRepository.save(bookStyles);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
+        return saved;
     }
 
     @Override
@@ -54,11 +65,14 @@ public class BookStylesServiceImpl implements BookStylesService {
 
         BookStyles bookStyles = bookStylesRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("BookStyles не найдены с id " + id));
+        List<String> isbns = Arrays.asList(id.getBookIsbn(), bookStylesDetails.getBook().getIsbn());
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
 
         bookStyles.setBook(bookStylesDetails.getBook());
         bookStyles.setStyleEntity(bookStylesDetails.getStyleEntity());
 
         BookStyles updated = bookStylesRepository.save(bookStyles);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
 
         // LOGGING ADDED
         logger.info("BookStyles с ключом {} успешно обновлён", id);
@@ -72,7 +86,10 @@ public class BookStylesServiceImpl implements BookStylesService {
 
         BookStyles bookStyles = bookStylesRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("BookStyles не найдены с id " + id));
+        List<String> isbns = List.of(id.getBookIsbn());
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
         bookStylesRepository.delete(bookStyles);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before, bookRepository.findBookLinks(isbns)));
 
         // LOGGING ADDED
         logger.info("BookStyles с ключом {} удалён", id);
@@ -0,0 +1,246 @@
+package org.application.bookstorage.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.application.bookstorage.dto.AuthorDTO;
+import org.application.bookstorage.dto.BookDTO;
+import org.application.bookstorage.dto.BookPageDTO;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.BookSortColumn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// LOGGING ADDED
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Кэш сериализованных JSON-ответов со списками книг каталога.
+ * Ключ — нормализованные (эндпоинт, область, search, sort_column, sort_order, страница);
+ * значение — готовый массив байтов, который контроллер отдаёт клиенту без повторной сериализации.
+ *
+ * Размер кэша ограничен суммарным объёмом ответов в байтах, вытеснение — W-TinyLFU (Caffeine).
+ * Записи удаляются по событиям CatalogChangedEvent после фиксации транзакции:
+ * изменения книг и жанров затрагивают все списки, изменение автора — только списки,
+ * где он встречается, списки с сортировкой по автору и полнотекстовый поиск; изменения самих издательств
+ * (переименование приходит отдельным событием BOOK) списки книг не затрагивают.
+ *
+ * Метрики доступны через /actuator/metrics (cache.gets, cache.puts, cache.evictions
+ * с тегом cache=catalogResponses и catalog.response.cache.bytes).
+ */
+@Component
+public class CatalogResponseCache {
+
+    // LOGGING ADDED
+    private static final Logger logger = LoggerFactory.getLogger(CatalogResponseCache.class);
+
+    private static final String CACHE_NAME = "catalogResponses";
+
+    /**
+     * Эндпоинт полнотекстового поиска: результат зависит от ФИО и псевдонимов всех авторов,
+     * поэтому такие записи удаляются при любом изменении авторов.
+     */
+    public static final String FULL_TEXT_ENDPOINT = "books-fts";
+
+    // Приблизительный объём ключа и служебных полей записи, учитываемый в весе
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<CacheKey, CachedResponse> cache;
+
+    // Увеличивается перед каждой инвалидацией: ответ, построенный до изменения каталога, не попадёт в кэш
+    private final AtomicLong generation = new AtomicLong();
+
+    public CatalogResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                @Value("${catalog.response-cache.max-bytes:67108864}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((CacheKey key, CachedResponse value) -> value.body.length + ENTRY_OVERHEAD)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("catalog.response.cache.bytes", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .description("Суммарный объём ответов в кэше каталога")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Сериализованный список книг из кэша или построенный loader'ом.
+     *
+     * @param endpoint   Эндпоинт (books, books-fts, author-books, publisher-books).
+     * @param scope      Автор или издательство, которым ограничен список (null для всего каталога).
+     * @param search     Параметр search.
+     * @param sortColumn Параметр sort_column.
+     * @param sortOrder  Параметр sort_order.
+     * @param limit      Размер страницы (null — весь список).
+     * @param after      Курсор страницы.
+     * @param loader     Строит ответ (List&lt;BookDTO&gt; или BookPageDTO) по нормализованному search —
+     *                   тому же, что в ключе: ответ для "Война " и "война" должен быть одним и тем же.
+     * @return JSON-представление ответа.
+     */
+    public byte[] getBooks(String endpoint, Object scope, String search, String sortColumn, String sortOrder,
+                           Integer limit, String after, Function<String, ?> loader) {
+        // Без sort_column полнотекстовый поиск сортирует по релевантности, поэтому отсутствие
+        // параметра хранится в ключе отдельно от явной сортировки по названию
+        BookSortColumn column = sortColumn == null || sortColumn.isEmpty() ? null : BookSortColumn.fromParameter(sortColumn);
+        String normalizedSearch = normalizeSearch(search);
+        CacheKey key = new CacheKey(endpoint, scope, normalizedSearch, column,
+                "desc".equalsIgnoreCase(sortOrder), limit, after == null || after.isEmpty() ? null : after);
+
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.body;
+        }
+
+        long startGeneration = generation.get();
+        Object response = loader.apply(normalizedSearch);
+        List<BookDTO> books = response instanceof BookPageDTO ? ((BookPageDTO) response).getBooks() : castBooks(response);
+        CachedResponse value = new CachedResponse(serialize(response), column == BookSortColumn.AUTHOR, authorIds(books));
+
+        if (generation.get() == startGeneration) {
+            cache.put(key, value);
+            // Инвалидация могла пройти между проверкой и записью — тогда запись построена по старым данным
+            if (generation.get() != startGeneration) {
+                cache.invalidate(key);
+            }
+        }
+        return value.body;
+    }
+
+    /**
+     * Удаление затронутых записей после фиксации транзакции.
+     * Выполняется после обновления поисковых индексов, по которым строятся ответы.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        generation.incrementAndGet();
+        long before = cache.estimatedSize();
+
+        if (event.isAll() || event.getEntity() == CatalogChangedEvent.Entity.BOOK
+                || event.getEntity() == CatalogChangedEvent.Entity.STYLE) {
+            cache.invalidateAll();
+        } else if (event.getEntity() == CatalogChangedEvent.Entity.AUTHOR) {
+            cache.asMap().entrySet().removeIf(entry -> entry.getValue().sortedByAuthor
+                    || FULL_TEXT_ENDPOINT.equals(entry.getKey().endpoint)
+                    || !Collections.disjoint(entry.getValue().authorIds, event.getIds()));
+        }
+
+        // LOGGING ADDED
+        logger.info("Кэш ответов каталога: {} → {} записей после {}", before, cache.estimatedSize(), event);
+    }
+
+    // Поиск не зависит от регистра и пробелов по краям, поэтому такие запросы делят одну запись
+    private static String normalizeSearch(String search) {
+        if (search == null) {
+            return null;
+        }
+        String trimmed = search.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<BookDTO> castBooks(Object response) {
+        return (List<BookDTO>) response;
+    }
+
+    private static Set<Object> authorIds(List<BookDTO> books) {
+        Set<Object> ids = new HashSet<>();
+        for (BookDTO book : books) {
+            if (book.getAuthors() != null) {
+                for (AuthorDTO author : book.getAuthors()) {
+                    ids.add(author.getId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ каталога", e);
+        }
+    }
+
+    private static final class CacheKey {
+        private final String endpoint;
+        private final Object scope;
+        private final String search;
+        private final BookSortColumn sortColumn;
+        private final boolean descending;
+        private final Integer limit;
+        private final String after;
+
+        private CacheKey(String endpoint, Object scope, String search, BookSortColumn sortColumn,
+                         boolean descending, Integer limit, String after) {
+            this.endpoint = endpoint;
+            this.scope = scope;
+            this.search = search;
+            this.sortColumn = sortColumn;
+            this.descending = descending;
+            this.limit = limit;
+            this.after = after;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return descending == other.descending
+                    && endpoint.equals(other.endpoint)
+                    && Objects.equals(scope, other.scope)
+                    && Objects.equals(search, other.search)
+                    && sortColumn == other.sortColumn
+                    && Objects.equals(limit, other.limit)
+                    && Objects.equals(after, other.after);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, scope, search, sortColumn, descending, limit, after);
+        }
+    }
+
+    private static final class CachedResponse {
+        private final byte[] body;
+        // Порядок записи зависит от ФИО всех авторов
+        private final boolean sortedByAuthor;
+        // id авторов, встречающихся в ответе
+        private final Set<Object> authorIds;
+
+        private CachedResponse(byte[] body, boolean sortedByAuthor, Set<Object> authorIds) {
+            this.body = body;
+            this.sortedByAuthor = sortedByAuthor;
+            this.authorIds = authorIds;
+        }
+    }
+}
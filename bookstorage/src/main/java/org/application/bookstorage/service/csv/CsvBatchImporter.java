@@ -0,0 +1,400 @@
+package org.application.bookstorage.service.csv;
+
+import com.opencsv.exceptions.CsvValidationException;
+import jakarta.persistence.EntityManager;
+import org.application.bookstorage.dao.*;
+import org.application.bookstorage.repository.*;
+import org.application.bookstorage.service.isbn.IsbnBloomFilter;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Импорт CSV через JPA порциями: новые записи сохраняются persist и отправляются в базу
+ * пакетами JDBC (hibernate.jdbc.batch_size, order_inserts), а после каждых csv.import.chunk-size
+ * записей контекст сохранения сбрасывается (flush) и очищается (clear). Объём памяти
+ * не растёт с размером файла, в отличие от построчного импорта, где все сохранённые
+ * сущности остаются в контексте до конца транзакции.
+ *
+ * Правила разбора строк и обработки повторов те же, что у построчного импорта CsvService.
+ * Строки разбираются в потоках CsvImportPipeline, а сущности сохраняются только в потоке
+ * транзакции: контекст сохранения не потокобезопасен.
+ * Ссылки и повторы в файлах связей проверяются по ключам, загруженным в память (ImportKeys).
+ * Авторы и жанры сохраняют идентификаторы из файла, как в режиме COPY (CsvCopyImporter): на них
+ * ссылаются authorships.csv и book_styles.csv. Такие строки записываются SQL-вставкой
+ * (INSERT ... ON CONFLICT (id) DO UPDATE) пакетами JDBC, затем последовательности id сдвигаются
+ * за максимальный идентификатор, и только строки без идентификатора сохраняются persist.
+ */
+@Component
+public class CsvBatchImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvBatchImporter.class);
+
+    private static final String UPSERT_AUTHOR =
+            "INSERT INTO authors (id, fio, birth_date, country, nickname) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET fio = EXCLUDED.fio, birth_date = EXCLUDED.birth_date, " +
+            "    country = EXCLUDED.country, nickname = EXCLUDED.nickname";
+    private static final String UPSERT_STYLE =
+            "INSERT INTO styles (id, name) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final IsbnBloomFilter isbnFilter;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final StylesRepository stylesRepository;
+    private final AuthorshipRepository authorshipRepository;
+    private final BookStylesRepository bookStylesRepository;
+    private final CsvImportPipeline pipeline;
+    private final int chunkSize;
+
+    public CsvBatchImporter(EntityManager entityManager, JdbcTemplate jdbcTemplate, IsbnBloomFilter isbnFilter,
+                            BookRepository bookRepository,
+                            AuthorRepository authorRepository, StylesRepository stylesRepository,
+                            AuthorshipRepository authorshipRepository, BookStylesRepository bookStylesRepository,
+                            CsvImportPipeline pipeline, @Value("${csv.import.chunk-size:1000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.isbnFilter = isbnFilter;
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.stylesRepository = stylesRepository;
+        this.authorshipRepository = authorshipRepository;
+        this.bookStylesRepository = bookStylesRepository;
+        this.pipeline = pipeline;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Импортирует файлы каталога из директории: файлы разбираются параллельно (CsvImportPipeline),
+     * записываются — по уровням внешних ключей: издательства, авторы и жанры, затем книги,
+     * затем авторства и связи книг с жанрами. Вызывается в транзакции импорта; отсутствующие
+     * файлы пропускаются.
+     */
+    public void importAll(Path dir) throws IOException, CsvValidationException {
+        long start = System.currentTimeMillis();
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        // Кэш второго уровня всё равно очищается после импорта — не заполняем его импортируемыми записями.
+        // В этом режиме не сбрасываются и кэшированные коллекции (CollectionCacheEvictionListener):
+        // отложенный сброс на каждую вставку копился бы в сессии до конца транзакции
+        session.setCacheMode(CacheMode.IGNORE);
+
+        Import current = new Import();
+        CsvImportPipeline.Stage<PublishingCompany> companies = new CsvImportPipeline.Stage<>(
+                "publishing_companies", dir.resolve("publishing_companies.csv"), 4,
+                CsvBatchImporter::parsePublishingCompany, current::writePublishingCompany);
+        CsvImportPipeline.Stage<Author> authors = new CsvImportPipeline.Stage<>(
+                "authors", dir.resolve("authors.csv"), 5, CsvBatchImporter::parseAuthor, current::writeAuthor);
+        CsvImportPipeline.Stage<Styles> styles = new CsvImportPipeline.Stage<>(
+                "styles", dir.resolve("styles.csv"), 2, CsvBatchImporter::parseStyle, current::writeStyle);
+        CsvImportPipeline.Stage<Book> books = new CsvImportPipeline.Stage<>(
+                "books", dir.resolve("books.csv"), 9, CsvBatchImporter::parseBook, current::writeBook);
+        CsvImportPipeline.Stage<Authorship> authorships = new CsvImportPipeline.Stage<>(
+                "authorships", dir.resolve("authorships.csv"), 2, CsvBatchImporter::parseAuthorship, current::writeAuthorship);
+        CsvImportPipeline.Stage<BookStylesId> bookStyles = new CsvImportPipeline.Stage<>(
+                "book_styles", dir.resolve("book_styles.csv"), 2, CsvBatchImporter::parseBookStyle, current::writeBookStyle);
+
+        try (CsvImportPipeline.Run run = pipeline.start(List.of(companies, authors, styles, books, authorships, bookStyles))) {
+            run.write(companies, authors, styles);
+            current.chunk.finish();
+            // Строки без идентификатора получают новые после сдвига последовательностей за идентификаторы из файлов
+            resetIdentity("authors");
+            resetIdentity("styles");
+            current.writeWithoutId();
+            current.chunk.finish();
+            run.write(books);
+            current.chunk.finish();
+            // Ссылки и повторы в файлах связей проверяются по ключам в памяти, без запросов на строку
+            current.keys = ImportKeys.load(bookRepository, authorRepository, stylesRepository,
+                    authorshipRepository, bookStylesRepository);
+            run.write(authorships, bookStyles);
+            current.chunk.finish();
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
+        logger.info("Пакетный импорт CSV выполнен за {} мс.", System.currentTimeMillis() - start);
+    }
+
+    // =================================================================
+    //              РАЗБОР (потоки разбора, без обращения к базе)
+    // =================================================================
+
+    private static PublishingCompany parsePublishingCompany(String[] header, String[] row) {
+        String estYearStr = row[1];
+        LocalDate establishmentYear = null;
+        if (estYearStr != null && !estYearStr.trim().isEmpty()) {
+            if (estYearStr.length() == 4) {
+                estYearStr += "-01-01";
+            }
+            establishmentYear = LocalDate.parse(estYearStr);
+        }
+        PublishingCompany company = new PublishingCompany();
+        company.setName(row[0]);
+        company.setEstablishmentYear(establishmentYear);
+        company.setContactInfo(row[2]);
+        company.setCity(row[3]);
+        return company;
+    }
+
+    // id автора из файла (null — не указан, автор получит новый идентификатор)
+    private static Author parseAuthor(String[] header, String[] row) {
+        Author author = new Author();
+        author.setId(row[0].trim().isEmpty() ? null : Integer.valueOf(row[0].trim()));
+        author.setFio(row[1]);
+        author.setBirthDate(row[2]);
+        author.setCountry(row[3]);
+        author.setNickname(row[4]);
+        return author;
+    }
+
+    private static Styles parseStyle(String[] header, String[] row) {
+        Styles style = new Styles();
+        style.setId(row[0].trim().isEmpty() ? null : Long.valueOf(row[0].trim()));
+        style.setName(row[1]);
+        return style;
+    }
+
+    // Издательство книги — заготовка только с названием; при записи заменяется сущностью из базы
+    private static Book parseBook(String[] header, String[] row) {
+        Book book = new Book();
+        book.setIsbn(row[0]);
+        book.setName(row[1]);
+        book.setPublicationYear(row[2] == null || row[2].trim().isEmpty() ? null : LocalDate.parse(row[2]));
+        book.setAgeLimit(Float.parseFloat(row[3]));
+        if (row[4] != null && !row[4].isEmpty()) {
+            PublishingCompany publishingCompany = new PublishingCompany();
+            publishingCompany.setName(row[4]);
+            book.setPublishingCompany(publishingCompany);
+        }
+        book.setPageCount(Integer.parseInt(row[5]));
+        book.setLanguage(row[6]);
+        book.setCost(new BigDecimal(Float.parseFloat(row[7])));
+        book.setCountOfBooks(Integer.parseInt(row[8]));
+        return book;
+    }
+
+    // Порядковый номер -1 — в файле нет столбца author_order, номер назначается при записи
+    private static Authorship parseAuthorship(String[] header, String[] row) {
+        if (row[0] == null || row[0].trim().isEmpty() || row[1].trim().isEmpty()) {
+            logger.warn("Некорректные данные для авторства: {}", Arrays.toString(row));
+            return null;
+        }
+        Authorship authorship = new Authorship();
+        authorship.setId(new AuthorshipId(row[0], Integer.parseInt(row[1].trim())));
+        if (header.length > 2) {
+            authorship.setAuthorOrder(row.length > 2 && !row[2].trim().isEmpty() ? Integer.parseInt(row[2].trim()) : 0);
+        } else {
+            authorship.setAuthorOrder(-1);
+        }
+        return authorship;
+    }
+
+    private static BookStylesId parseBookStyle(String[] header, String[] row) {
+        if (row[0] == null || row[0].trim().isEmpty() || row[1].trim().isEmpty()) {
+            logger.warn("Некорректные данные для связи книги со стилем: {}", Arrays.toString(row));
+            return null;
+        }
+        return new BookStylesId(row[0], Long.valueOf(row[1].trim()));
+    }
+
+    // =================================================================
+    //                  ЗАПИСЬ (поток транзакции импорта)
+    // =================================================================
+
+    /**
+     * Состояние одного импорта: текущая порция, ключи каталога для файлов связей,
+     * номера авторов книг для файлов без столбца author_order и авторы и жанры без идентификатора,
+     * которые сохраняются после сдвига последовательностей.
+     */
+    private final class Import {
+        private final Chunk chunk = new Chunk();
+        private final Map<String, Integer> nextAuthorOrder = new HashMap<>();
+        private final List<Object> withoutId = new ArrayList<>();
+        private ImportKeys keys;
+
+        private boolean writePublishingCompany(PublishingCompany parsed) {
+            PublishingCompany company = entityManager.find(PublishingCompany.class, parsed.getName());
+            if (company == null) {
+                chunk.write(parsed, false);
+                return true;
+            }
+            company.setEstablishmentYear(parsed.getEstablishmentYear());
+            company.setContactInfo(parsed.getContactInfo());
+            company.setCity(parsed.getCity());
+            chunk.write(company, true);
+            return true;
+        }
+
+        // Автор с идентификатором из файла вставляется с ним же; повтор идентификатора обновляет автора
+        private boolean writeAuthor(Author parsed) {
+            if (parsed.getId() == null) {
+                withoutId.add(parsed);
+                return true;
+            }
+            chunk.upsert(UPSERT_AUTHOR, parsed.getId(), new Object[]{parsed.getId(), parsed.getFio(),
+                    parsed.getBirthDate(), parsed.getCountry(), parsed.getNickname()});
+            return true;
+        }
+
+        private boolean writeStyle(Styles parsed) {
+            if (parsed.getId() == null) {
+                withoutId.add(parsed);
+                return true;
+            }
+            chunk.upsert(UPSERT_STYLE, parsed.getId(), new Object[]{parsed.getId(), parsed.getName()});
+            return true;
+        }
+
+        // Авторы и жанры без идентификатора получают его из последовательности
+        private void writeWithoutId() {
+            withoutId.forEach(entity -> chunk.write(entity, false));
+            withoutId.clear();
+        }
+
+        private boolean writeBook(Book parsed) {
+            PublishingCompany publishingCompany = null;
+            if (parsed.getPublishingCompany() != null) {
+                String name = parsed.getPublishingCompany().getName();
+                publishingCompany = entityManager.find(PublishingCompany.class, name);
+                if (publishingCompany == null) {
+                    throw new IllegalArgumentException("Издательство не найдено: " + name);
+                }
+            }
+
+            Book book = findBook(parsed.getIsbn());
+            boolean exists = book != null;
+            if (!exists) {
+                book = parsed;
+            } else {
+                book.setName(parsed.getName());
+                book.setPublicationYear(parsed.getPublicationYear());
+                book.setAgeLimit(parsed.getAgeLimit());
+                book.setPageCount(parsed.getPageCount());
+                book.setLanguage(parsed.getLanguage());
+                book.setCost(parsed.getCost());
+                book.setCountOfBooks(parsed.getCountOfBooks());
+            }
+            book.setPublishingCompany(publishingCompany);
+            chunk.write(book, exists);
+            isbnFilter.add(book.getIsbn());
+            return true;
+        }
+
+        private boolean writeAuthorship(Authorship parsed) {
+            String bookIsbn = parsed.getId().getBookIsbn();
+            int authorId = parsed.getId().getAuthorId();
+            if (!keys.bookExists(bookIsbn) || !keys.authorExists(authorId)) {
+                logger.warn("Книга или автор не найдены для авторства: ISBN={}, AuthorID={}", bookIsbn, authorId);
+                return false;
+            }
+            if (!keys.addAuthorship(bookIsbn, authorId)) {
+                logger.debug("Авторство уже существует: ISBN={}, AuthorID={}", bookIsbn, authorId);
+                return false;
+            }
+
+            if (parsed.getAuthorOrder() < 0) {
+                int authorOrder = nextAuthorOrder.getOrDefault(bookIsbn, 0);
+                nextAuthorOrder.put(bookIsbn, authorOrder + 1);
+                parsed.setAuthorOrder(authorOrder);
+            }
+            parsed.setBook(entityManager.getReference(Book.class, bookIsbn));
+            parsed.setAuthor(entityManager.getReference(Author.class, authorId));
+            chunk.write(parsed, false);
+            return true;
+        }
+
+        private boolean writeBookStyle(BookStylesId id) {
+            if (!keys.bookExists(id.getBookIsbn()) || !keys.styleExists(id.getStyle())) {
+                logger.warn("Книга или стиль не найдены для связи: ISBN={}, StyleID={}", id.getBookIsbn(), id.getStyle());
+                return false;
+            }
+            if (!keys.addBookStyle(id.getBookIsbn(), id.getStyle())) {
+                logger.debug("Связь книги со стилем уже существует: ISBN={}, StyleID={}", id.getBookIsbn(), id.getStyle());
+                return false;
+            }
+
+            BookStyles bookStyles = new BookStyles();
+            bookStyles.setId(id);
+            bookStyles.setBook(entityManager.getReference(Book.class, id.getBookIsbn()));
+            bookStyles.setStyleEntity(entityManager.getReference(Styles.class, id.getStyle()));
+            chunk.write(bookStyles, false);
+            return true;
+        }
+    }
+
+    // Сдвигает последовательность столбца id за максимальный идентификатор, вставленный явно
+    private void resetIdentity(String table) {
+        jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), " +
+                "coalesce(max(id), 0) + 1, false) FROM " + table, Long.class);
+    }
+
+    // Книга по ISBN из контекста или базы; ISBN, которых точно нет (по фильтру Блума), в базе не ищутся
+    private Book findBook(String isbn) {
+        if (!isbnFilter.mightContain(isbn)) {
+            return null;
+        }
+        Book book = entityManager.find(Book.class, isbn);
+        if (book == null) {
+            isbnFilter.recordFalsePositive();
+        }
+        return book;
+    }
+
+    /**
+     * Счётчик записей текущей порции: после chunkSize записей изменения отправляются в базу,
+     * а контекст сохранения очищается. Ссылки на сущности после очистки не используются.
+     */
+    private final class Chunk {
+        private int pending;
+        // SQL-вставки порции по запросам; строки с одним ключом схлопываются (остаётся последняя из файла)
+        private final Map<String, Map<Object, Object[]>> upserts = new LinkedHashMap<>();
+
+        /**
+         * @param entity  Новая сущность (сохраняется persist) или уже управляемая (изменения
+         *                запишутся при flush).
+         * @param managed true, если сущность получена из контекста сохранения.
+         */
+        void write(Object entity, boolean managed) {
+            if (!managed) {
+                entityManager.persist(entity);
+            }
+            if (++pending >= chunkSize) {
+                finish();
+            }
+        }
+
+        /**
+         * Строка, записываемая SQL-запросом sql в обход контекста сохранения.
+         */
+        void upsert(String sql, Object key, Object[] args) {
+            upserts.computeIfAbsent(sql, q -> new LinkedHashMap<>()).put(key, args);
+            if (++pending >= chunkSize) {
+                finish();
+            }
+        }
+
+        void finish() {
+            upserts.forEach((sql, rows) -> jdbcTemplate.batchUpdate(sql, new ArrayList<>(rows.values())));
+            upserts.clear();
+            entityManager.flush();
+            entityManager.clear();
+            pending = 0;
+        }
+    }
+}
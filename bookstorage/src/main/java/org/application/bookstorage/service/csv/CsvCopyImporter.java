@@ -0,0 +1,287 @@
+package org.application.bookstorage.service.csv;
+
+import lombok.RequiredArgsConstructor;
+import org.application.bookstorage.service.isbn.IsbnBloomFilter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Массовый импорт CSV средствами PostgreSQL: каждый файл передаётся командой COPY ... FROM STDIN
+ * во временную таблицу из текстовых столбцов, после чего строки переносятся в таблицы каталога
+ * одним INSERT ... SELECT на таблицу. Разбор, проверка и поиск связанных записей выполняются
+ * базой над всем файлом сразу, без запроса на каждую строку.
+ *
+ * Работает в транзакции вызывающего кода (CsvService.importData) и в обход Hibernate:
+ * кэш второго уровня и копии каталога в памяти обновляет вызывающий код, ISBN книг
+ * добавляются в IsbnBloomFilter здесь же.
+ *
+ * Строки с некорректными числами и датами, ссылками на отсутствующие записи и повторы ключей
+ * пропускаются, как и при построчном импорте (из повторов остаётся последняя строка для сущностей
+ * и первая для связей); пропущенные строки не перечисляются, в журнал пишется их количество.
+ * Строки с неверным числом столбцов COPY не принимает — такой файл прерывает импорт целиком.
+ */
+@Component
+@RequiredArgsConstructor
+public class CsvCopyImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvCopyImporter.class);
+
+    // Формат файлов экспорта: разделитель — запятая, кавычки не используются (см. buildCsvReader);
+    // символ \x01 в качестве кавычки отключает их обработку в COPY
+    private static final String COPY_OPTIONS = "FORMAT csv, QUOTE E'\\x01', ENCODING 'UTF8'";
+
+    private static final String INTEGER = "'^\\s*[-+]?\\d{1,9}\\s*$'";
+    private static final String BIGINT = "'^\\s*[-+]?\\d{1,18}\\s*$'";
+    private static final String DECIMAL = "'^\\s*[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?\\s*$'";
+    private static final String DATE = "'^\\s*\\d{4}-\\d{2}-\\d{2}\\s*$'";
+
+    // Размер порции при чтении ISBN импортированных книг
+    private static final int ISBN_FETCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final IsbnBloomFilter isbnFilter;
+
+    /**
+     * Импортирует файлы каталога из директории в порядке зависимостей по внешним ключам.
+     * Отсутствующие файлы пропускаются.
+     */
+    public void importAll(Path dir) throws IOException {
+        long start = System.currentTimeMillis();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            long companies = copy(copyManager, dir.resolve("publishing_companies.csv"), "csv_publishing_companies",
+                    List.of("name", "establishment_year", "contact_info", "city"), 4);
+            if (companies >= 0) {
+                merged("издательств", companies, jdbcTemplate.update(
+                        "INSERT INTO publishing_companies (name, establishment_year, contact_info, city) " +
+                        "SELECT DISTINCT ON (name) name, " +
+                        "       CASE WHEN trim(establishment_year) = '' THEN NULL " +
+                        "            WHEN length(trim(establishment_year)) = 4 THEN (trim(establishment_year) || '-01-01')::date " +
+                        "            ELSE establishment_year::date END, " +
+                        "       contact_info, city " +
+                        "FROM csv_publishing_companies " +
+                        "WHERE (establishment_year ~ " + DATE + " OR establishment_year ~ '^\\s*(\\d{4})?\\s*$') " +
+                        "ORDER BY name, line DESC " +
+                        "ON CONFLICT (name) DO UPDATE SET establishment_year = EXCLUDED.establishment_year, " +
+                        "    contact_info = EXCLUDED.contact_info, city = EXCLUDED.city"));
+            }
+
+            long authors = copy(copyManager, dir.resolve("authors.csv"), "csv_authors",
+                    List.of("id", "fio", "birth_date", "country", "nickname"), 5);
+            if (authors >= 0) {
+                // Идентификаторы из файла сохраняются — на них ссылается authorships.csv;
+                // авторы без идентификатора получают новые после сдвига последовательности
+                int withId = jdbcTemplate.update(
+                        "INSERT INTO authors (id, fio, birth_date, country, nickname) " +
+                        "SELECT DISTINCT ON (id::int) id::int, fio, birth_date, country, nickname " +
+                        "FROM csv_authors WHERE id ~ " + INTEGER + " " +
+                        "ORDER BY id::int, line DESC " +
+                        "ON CONFLICT (id) DO UPDATE SET fio = EXCLUDED.fio, birth_date = EXCLUDED.birth_date, " +
+                        "    country = EXCLUDED.country, nickname = EXCLUDED.nickname");
+                resetIdentity("authors");
+                int withoutId = jdbcTemplate.update(
+                        "INSERT INTO authors (fio, birth_date, country, nickname) " +
+                        "SELECT fio, birth_date, country, nickname FROM csv_authors WHERE trim(id) = '' ORDER BY line");
+                merged("авторов", authors, withId + withoutId);
+            }
+
+            long styles = copy(copyManager, dir.resolve("styles.csv"), "csv_styles", List.of("id", "name"), 2);
+            if (styles >= 0) {
+                int withId = jdbcTemplate.update(
+                        "INSERT INTO styles (id, name) " +
+                        "SELECT DISTINCT ON (id::bigint) id::bigint, name " +
+                        "FROM csv_styles WHERE id ~ " + BIGINT + " " +
+                        "ORDER BY id::bigint, line DESC " +
+                        "ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name");
+                resetIdentity("styles");
+                int withoutId = jdbcTemplate.update(
+                        "INSERT INTO styles (name) SELECT name FROM csv_styles WHERE trim(id) = '' ORDER BY line");
+                merged("стилей", styles, withId + withoutId);
+            }
+
+            long books = copy(copyManager, dir.resolve("books.csv"), "csv_books",
+                    List.of("isbn", "name", "publication_year", "age_limit", "publishing_company",
+                            "page_count", "language", "cost", "count_of_books"), 9);
+            // Авторства загружаются до книг: новые книги сразу получают основного автора (primary_author),
+            // и триггеру на authorships (schema.sql) не приходится перезаписывать каждую строку books
+            long authorships = copy(copyManager, dir.resolve("authorships.csv"), "csv_authorships",
+                    List.of("book_isbn", "author_id", "author_order"), 2);
+            stageAuthorships(authorships >= 0);
+            if (books >= 0) {
+                merged("книг", books, jdbcTemplate.update(
+                        "INSERT INTO books (isbn, name, publication_year, age_limit, publishing_company, " +
+                        "    page_count, language, cost, count_of_books, primary_author) " +
+                        "SELECT DISTINCT ON (b.isbn) b.isbn, b.name, " +
+                        "       CASE WHEN trim(b.publication_year) = '' THEN NULL ELSE b.publication_year::date END, " +
+                        "       b.age_limit::real, nullif(b.publishing_company, ''), b.page_count::int, b.language, " +
+                        "       b.cost::numeric, b.count_of_books::int, pa.fio " +
+                        "FROM csv_books b " +
+                        "LEFT JOIN (SELECT DISTINCT ON (m.book_isbn) m.book_isbn, au.fio " +
+                        "           FROM csv_authorships_merged m JOIN authors au ON au.id = m.author_id " +
+                        "           ORDER BY m.book_isbn, m.author_order, m.author_id) pa ON pa.book_isbn = b.isbn " +
+                        "WHERE b.isbn <> '' " +
+                        "  AND (b.publication_year ~ " + DATE + " OR trim(b.publication_year) = '') " +
+                        "  AND b.age_limit ~ " + DECIMAL + " AND b.page_count ~ " + INTEGER +
+                        "  AND b.cost ~ " + DECIMAL + " AND b.count_of_books ~ " + INTEGER +
+                        "  AND (b.publishing_company = '' OR EXISTS " +
+                        "       (SELECT 1 FROM publishing_companies p WHERE p.name = b.publishing_company)) " +
+                        "ORDER BY b.isbn, b.line DESC " +
+                        "ON CONFLICT (isbn) DO UPDATE SET name = EXCLUDED.name, " +
+                        "    publication_year = EXCLUDED.publication_year, age_limit = EXCLUDED.age_limit, " +
+                        "    publishing_company = EXCLUDED.publishing_company, page_count = EXCLUDED.page_count, " +
+                        "    language = EXCLUDED.language, cost = EXCLUDED.cost, " +
+                        "    count_of_books = EXCLUDED.count_of_books"));
+                addImportedIsbns();
+            }
+
+            if (authorships >= 0) {
+                merged("авторств", authorships, jdbcTemplate.update(
+                        "INSERT INTO authorships (book_isbn, author_id, author_order) " +
+                        "SELECT m.book_isbn, m.author_id, m.author_order FROM csv_authorships_merged m " +
+                        "WHERE EXISTS (SELECT 1 FROM books b WHERE b.isbn = m.book_isbn) " +
+                        "ON CONFLICT DO NOTHING"));
+            }
+
+            long bookStyles = copy(copyManager, dir.resolve("book_styles.csv"), "csv_book_styles",
+                    List.of("book_isbn", "style_id"), 2);
+            if (bookStyles >= 0) {
+                merged("связей книг со стилями", bookStyles, jdbcTemplate.update(
+                        "INSERT INTO book_styles (book_isbn, style) " +
+                        "SELECT DISTINCT bs.book_isbn, bs.style_id::bigint " +
+                        "FROM csv_book_styles bs " +
+                        "WHERE bs.style_id ~ " + BIGINT +
+                        "  AND EXISTS (SELECT 1 FROM books b WHERE b.isbn = bs.book_isbn) " +
+                        "  AND EXISTS (SELECT 1 FROM styles st WHERE st.id = bs.style_id::bigint) " +
+                        "ON CONFLICT DO NOTHING"));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка COPY при импорте CSV: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        logger.info("Импорт CSV через COPY выполнен за {} мс.", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Загружает файл во временную таблицу staging (удаляется при завершении транзакции).
+     * Столбцы таблицы — columns, все текстовые и непустые, плюс line — номер строки файла.
+     * Состав и порядок столбцов файла берутся из его заголовка; первые required из columns обязательны.
+     *
+     * @return Количество загруженных строк или -1, если файла нет.
+     */
+    private long copy(CopyManager copyManager, Path file, String staging, List<String> columns, int required)
+            throws IOException, SQLException {
+        if (!Files.exists(file)) {
+            logger.warn("{} не найден, пропуск импорта.", file.getFileName());
+            return -1;
+        }
+
+        StringBuilder definition = new StringBuilder("CREATE TEMP TABLE " + staging + " (line bigserial");
+        for (String column : columns) {
+            definition.append(", ").append(column).append(" text NOT NULL DEFAULT ''");
+        }
+        jdbcTemplate.execute(definition.append(") ON COMMIT DROP").toString());
+
+        try (FileInputStream fis = new FileInputStream(file.toFile());
+             BufferedInputStream bis = new BufferedInputStream(fis, 1 << 16)) {
+            CsvService.skipBomIfPresent(bis);
+
+            List<String> fileColumns = new ArrayList<>();
+            for (String name : readLine(bis).split(",")) {
+                String column = name.trim().toLowerCase();
+                if (!columns.contains(column) || fileColumns.contains(column)) {
+                    throw new IllegalArgumentException("Неизвестный или повторяющийся столбец '" + column + "' в " + file.getFileName());
+                }
+                fileColumns.add(column);
+            }
+            if (!fileColumns.containsAll(columns.subList(0, required))) {
+                throw new IllegalArgumentException("В " + file.getFileName() + " нет обязательных столбцов " + columns.subList(0, required));
+            }
+
+            String columnList = String.join(", ", fileColumns);
+            long rows = copyManager.copyIn("COPY " + staging + " (" + columnList + ") FROM STDIN WITH ("
+                    + COPY_OPTIONS + ", FORCE_NOT_NULL (" + columnList + "))", bis);
+            // Статистика для планировщика: временные таблицы autovacuum не анализирует
+            jdbcTemplate.execute("ANALYZE " + staging);
+            return rows;
+        }
+    }
+
+    // Книги вставлены в обход Hibernate — их ISBN добавляются в фильтр до фиксации. Иначе до перестроения
+    // фильтра (или навсегда, если оно не удастся) он отвечал бы «книги нет» для существующих книг;
+    // ISBN удалённых строк и отменённого импорта дают лишь лишние ложные срабатывания
+    private void addImportedIsbns() {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(ISBN_FETCH_SIZE);
+        streamingTemplate.query("SELECT isbn FROM books", (RowCallbackHandler) rs -> isbnFilter.add(rs.getString(1)));
+    }
+
+    /**
+     * Отбирает строки authorships.csv для вставки во временную таблицу csv_authorships_merged
+     * (без проверки книги — книги ещё не перенесены). Без файла таблица создаётся пустой.
+     */
+    private void stageAuthorships(boolean loaded) {
+        if (!loaded) {
+            jdbcTemplate.execute("CREATE TEMP TABLE csv_authorships_merged " +
+                    "(book_isbn text, author_id int, author_order int) ON COMMIT DROP");
+            return;
+        }
+        // Без столбца author_order порядок авторов книги — порядок строк файла
+        jdbcTemplate.execute(
+                "CREATE TEMP TABLE csv_authorships_merged ON COMMIT DROP AS " +
+                "SELECT s.book_isbn, s.author_id, " +
+                "       coalesce(s.author_order, (row_number() OVER (PARTITION BY s.book_isbn ORDER BY s.line))::int - 1) AS author_order " +
+                "FROM (SELECT DISTINCT ON (a.book_isbn, a.author_id::int) a.book_isbn, a.author_id::int AS author_id, " +
+                "             CASE WHEN trim(a.author_order) = '' THEN NULL ELSE a.author_order::int END AS author_order, " +
+                "             a.line " +
+                "      FROM csv_authorships a " +
+                "      WHERE a.author_id ~ " + INTEGER +
+                "        AND (a.author_order ~ " + INTEGER + " OR trim(a.author_order) = '') " +
+                "        AND EXISTS (SELECT 1 FROM authors au WHERE au.id = a.author_id::int) " +
+                "      ORDER BY a.book_isbn, a.author_id::int, a.line) s");
+        jdbcTemplate.execute("ANALYZE csv_authorships_merged");
+    }
+
+    // Сдвигает последовательность столбца id за максимальный идентификатор, вставленный явно
+    private void resetIdentity(String table) {
+        jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), " +
+                "coalesce(max(id), 0) + 1, false) FROM " + table, Long.class);
+    }
+
+    private void merged(String what, long loaded, int imported) {
+        logger.info("Импортировано {} {} из {} строк файла (пропущено {}).", imported, what, loaded, loaded - imported);
+    }
+
+    // Строка до перевода строки; поток остаётся на начале следующей строки
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8).replace("\r", "");
+    }
+}
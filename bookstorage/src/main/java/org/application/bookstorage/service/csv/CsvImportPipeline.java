@@ -0,0 +1,357 @@
+package org.application.bookstorage.service.csv;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Конвейер импорта CSV: файлы разбираются параллельно в пуле потоков разбора, а разобранные
+ * строки пакетами передаются через ограниченные очереди стадиям записи. Запись выполняется
+ * в потоке, вызвавшем write, — в транзакции импорта, поэтому импорт остаётся атомарным.
+ *
+ * Разбор всех файлов начинается сразу (start), запись — по уровням графа внешних ключей
+ * (write для каждого уровня по порядку). Пока записывается один уровень, файлы следующих уже
+ * разбираются; заполненная очередь приостанавливает разбор своего файла. Стадии одного уровня
+ * записываются вперемешку, по мере готовности пакетов.
+ *
+ * Метрики (тег table — имя стадии): csv.import.rows и csv.import.stage.time (тег stage = parse | write) —
+ * количество строк и время работы стадий, по ним считается пропускная способность;
+ * csv.import.queue.depth — пакеты, ожидающие записи.
+ */
+@Component
+public class CsvImportPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvImportPipeline.class);
+
+    // Строк в пакете, передаваемом от разбора к записи
+    private static final int BATCH_SIZE = 500;
+    // Признак конца файла в очереди
+    private static final List<Object> END = new ArrayList<>();
+
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService parsers;
+    private final int queueCapacity;
+    private final Map<String, AtomicInteger> queueDepths = new ConcurrentHashMap<>();
+
+    public CsvImportPipeline(MeterRegistry meterRegistry,
+                             @Value("${csv.import.parser-threads:4}") int parserThreads,
+                             @Value("${csv.import.queue-capacity:16}") int queueCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.parsers = Executors.newFixedThreadPool(parserThreads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import-parser-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Разбор строки файла. Выполняется в потоке разбора, поэтому не должен обращаться к базе.
+     * Исключение или null — строка пропускается (исключение записывается в журнал).
+     */
+    @FunctionalInterface
+    public interface RowParser<T> {
+        T parse(String[] header, String[] row);
+    }
+
+    /**
+     * Запись разобранной строки в потоке транзакции. Исключение — строка пропускается.
+     *
+     * @return true, если строка импортирована.
+     */
+    @FunctionalInterface
+    public interface RowWriter<T> {
+        boolean write(T value);
+    }
+
+    /**
+     * Стадия импорта одного файла. Строки короче minColumns пропускаются при разборе.
+     */
+    public static final class Stage<T> {
+        private final String table;
+        private final Path file;
+        private final int minColumns;
+        private final RowParser<T> parser;
+        private final RowWriter<T> writer;
+
+        public Stage(String table, Path file, int minColumns, RowParser<T> parser, RowWriter<T> writer) {
+            this.table = table;
+            this.file = file;
+            this.minColumns = minColumns;
+            this.parser = parser;
+            this.writer = writer;
+        }
+    }
+
+    /**
+     * Запускает разбор файлов стадий; порядок стадий — порядок их записи, чтобы при нехватке
+     * потоков разбора раньше разбирались файлы, которые раньше понадобятся.
+     */
+    public Run start(List<Stage<?>> stages) {
+        Run run = new Run();
+        for (Stage<?> stage : stages) {
+            StageRun<?> stageRun = new StageRun<>(stage);
+            run.stages.put(stage, stageRun);
+            stageRun.future = parsers.submit(stageRun::parse);
+        }
+        return run;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsers.shutdownNow();
+    }
+
+    /**
+     * Запущенный импорт. close() прерывает разбор, если запись завершилась с ошибкой.
+     */
+    public final class Run implements AutoCloseable {
+        private final Map<Stage<?>, StageRun<?>> stages = new HashMap<>();
+
+        /**
+         * Записывает все строки стадий одного уровня и возвращает управление, когда их файлы
+         * разобраны и записаны полностью.
+         *
+         * @throws IOException Файл одной из стадий не удалось прочитать.
+         */
+        public void write(Stage<?>... level) throws IOException, CsvValidationException {
+            List<StageRun<?>> active = new ArrayList<>();
+            for (Stage<?> stage : level) {
+                active.add(stages.get(stage));
+            }
+            try {
+                while (!active.isEmpty()) {
+                    boolean progressed = false;
+                    for (Iterator<StageRun<?>> it = active.iterator(); it.hasNext(); ) {
+                        StageRun<?> stageRun = it.next();
+                        List<?> batch = stageRun.queue.poll();
+                        if (batch != null) {
+                            progressed = true;
+                            if (stageRun.accept(batch)) {
+                                it.remove();
+                            }
+                        }
+                    }
+                    if (!progressed) {
+                        // Все очереди уровня пусты — ждём пакет первой из стадий
+                        StageRun<?> stageRun = active.get(0);
+                        List<?> batch = stageRun.queue.poll(5, TimeUnit.MILLISECONDS);
+                        if (batch != null && stageRun.accept(batch)) {
+                            active.remove(stageRun);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Импорт CSV прерван", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            for (StageRun<?> stageRun : stages.values()) {
+                stageRun.future.cancel(true);
+                stageRun.queue.clear();
+                stageRun.depth.set(0);
+            }
+        }
+    }
+
+    private final class StageRun<T> {
+        private final Stage<T> stage;
+        private final BlockingQueue<List<?>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicInteger depth;
+        private final Counter parsedRows;
+        private final Counter writtenRows;
+        private final Timer parseTime;
+        private final Timer writeTime;
+        private Future<?> future;
+        // Ошибка чтения файла; публикуется потоку записи через очередь (END кладётся после неё)
+        private Exception failure;
+        // Время стадий в этом импорте (метрики накапливаются за все импорты)
+        private long parseNanos;
+        private long writeNanos;
+        private int imported;
+
+        private StageRun(Stage<T> stage) {
+            this.stage = stage;
+            this.depth = queueDepths.computeIfAbsent(stage.table, table -> {
+                AtomicInteger value = new AtomicInteger();
+                Gauge.builder("csv.import.queue.depth", value, AtomicInteger::get).tag("table", table)
+                        .description("Пакеты строк, разобранные и ожидающие записи").register(meterRegistry);
+                return value;
+            });
+            this.parsedRows = rows("parse");
+            this.writtenRows = rows("write");
+            this.parseTime = time("parse");
+            this.writeTime = time("write");
+        }
+
+        private Counter rows(String phase) {
+            return Counter.builder("csv.import.rows").tags("table", stage.table, "stage", phase)
+                    .description("Строки, прошедшие стадию импорта CSV").register(meterRegistry);
+        }
+
+        private Timer time(String phase) {
+            return Timer.builder("csv.import.stage.time").tags("table", stage.table, "stage", phase)
+                    .description("Время работы стадии импорта CSV (без ожидания очереди)").register(meterRegistry);
+        }
+
+        // Поток разбора: файл → пакеты строк в очередь, в конце END (и для отсутствующего или пустого файла)
+        private void parse() {
+            try {
+                parseFile();
+            } catch (InterruptedException e) {
+                // Запись прервана (Run.close) — END уже никто не ждёт
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | CsvValidationException | RuntimeException e) {
+                failure = e;
+            }
+            try {
+                put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void parseFile() throws IOException, CsvValidationException, InterruptedException {
+            if (!Files.exists(stage.file)) {
+                logger.warn("{} не найден, пропуск импорта.", stage.file.getFileName());
+                return;
+            }
+            try (FileInputStream fis = new FileInputStream(stage.file.toFile());
+                 BufferedInputStream bis = new BufferedInputStream(fis);
+                 InputStreamReader isr = new InputStreamReader(bis, StandardCharsets.UTF_8)) {
+
+                CsvService.skipBomIfPresent(bis);
+
+                try (CSVReader reader = CsvService.buildCsvReader(isr)) {
+                    String[] header = reader.readNext();
+                    if (header == null) {
+                        return;
+                    }
+                    List<T> batch = new ArrayList<>(BATCH_SIZE);
+                    long started = System.nanoTime();
+                    String[] row;
+                    while ((row = reader.readNext()) != null) {
+                        parseRow(header, row, batch);
+                        if (batch.size() == BATCH_SIZE) {
+                            recordParse(started);
+                            put(batch);
+                            batch = new ArrayList<>(BATCH_SIZE);
+                            started = System.nanoTime();
+                        }
+                    }
+                    recordParse(started);
+                    if (!batch.isEmpty()) {
+                        put(batch);
+                    }
+                }
+            }
+        }
+
+        private void recordParse(long started) {
+            long elapsed = System.nanoTime() - started;
+            parseNanos += elapsed;
+            parseTime.record(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        private void parseRow(String[] header, String[] row, List<T> batch) {
+            if (row.length < stage.minColumns) {
+                logger.warn("Некорректная строка в {}: {}", stage.file.getFileName(), Arrays.toString(row));
+                return;
+            }
+            try {
+                T value = stage.parser.parse(header, row);
+                if (value != null) {
+                    batch.add(value);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Не удалось разобрать строку из {}: {}", stage.file.getFileName(), Arrays.toString(row), e);
+            }
+        }
+
+        private void put(List<?> batch) throws InterruptedException {
+            queue.put(batch);
+            depth.incrementAndGet();
+            if (batch != END) {
+                parsedRows.increment(batch.size());
+            }
+        }
+
+        /**
+         * Поток записи: записывает пакет.
+         *
+         * @return true, если получен конец файла.
+         */
+        @SuppressWarnings("unchecked")
+        private boolean accept(List<?> batch) throws IOException, CsvValidationException {
+            depth.decrementAndGet();
+            if (batch == END) {
+                finish();
+                return true;
+            }
+            long started = System.nanoTime();
+            for (Object value : batch) {
+                try {
+                    if (stage.writer.write((T) value)) {
+                        imported++;
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Не удалось импортировать строку из {}: {}", stage.file.getFileName(), value, e);
+                }
+            }
+            long elapsed = System.nanoTime() - started;
+            writeNanos += elapsed;
+            writeTime.record(elapsed, TimeUnit.NANOSECONDS);
+            writtenRows.increment(batch.size());
+            return false;
+        }
+
+        private void finish() throws IOException, CsvValidationException {
+            if (failure instanceof IOException e) {
+                throw e;
+            }
+            if (failure instanceof CsvValidationException e) {
+                throw e;
+            }
+            if (failure instanceof RuntimeException e) {
+                throw e;
+            }
+            logger.info("{}: импортировано {} строк; разбор {} мс, запись {} мс.", stage.table, imported,
+                    TimeUnit.NANOSECONDS.toMillis(parseNanos), TimeUnit.NANOSECONDS.toMillis(writeNanos));
+        }
+    }
+}
@@ -8,19 +8,29 @@ import com.opencsv.CSVWriter;
 import com.opencsv.exceptions.CsvValidationException;
 import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.*;
+import org.application.bookstorage.event.CatalogChangedEvent;
 import org.application.bookstorage.repository.*;
+import org.application.bookstorage.service.isbn.IsbnBloomFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.transaction.Transactional;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -30,6 +40,14 @@ public class CsvService {
 
     private static final Logger logger = LoggerFactory.getLogger(CsvService.class);
 
+    // Режимы импорта (параметр mode эндпоинта /api/csv/import)
+    public static final String IMPORT_MODE_COPY = "copy";
+    public static final String IMPORT_MODE_JPA = "jpa";
+    public static final String IMPORT_MODE_BATCH = "batch";
+
+    // Размер порции строк, которую драйвер PostgreSQL читает из курсора при экспорте
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     private final AuthorRepository authorRepository;
     private final PublishingCompanyRepository publishingCompanyRepository;
     private final BookRepository bookRepository;
@@ -37,6 +55,12 @@ public class CsvService {
     private final StylesRepository stylesRepository;
     private final BookStylesRepository bookStylesRepository;
     private final JdbcTemplate jdbcTemplate; // Для выполнения SQL-запроса очистки БД
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+    private final IsbnBloomFilter isbnFilter;
+    private final CsvCopyImporter csvCopyImporter;
+    private final CsvBatchImporter csvBatchImporter;
 
     // Путь к каталогу для экспорта/импорта CSV файлов задаётся через application.properties
     @Value("${csv.export.dir}")
@@ -45,7 +69,8 @@ public class CsvService {
     /**
      * Экспортирует все данные из базы данных в CSV файлы.
      */
-    @Transactional
+    // Курсоры PostgreSQL работают только внутри транзакции; readOnly — чтобы Hibernate не делал flush
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public void exportData() throws IOException {
         // Создание каталога для экспорта, если он не существует
         Path exportPath = Paths.get(exportDir);
@@ -66,19 +91,39 @@ public class CsvService {
     /**
      * Импортирует все данные из CSV файлов в базу данных.
      * Перед импортом очищается база данных с помощью метода clearDatabase().
+     *
+     * @param mode Способ загрузки: "copy" (по умолчанию) — COPY во временные таблицы и перенос
+     *             в таблицы каталога SQL-запросами; "batch" — сохранение через JPA пакетами с очисткой
+     *             контекста между порциями; "jpa" — построчное сохранение через репозитории.
      */
     @Transactional
-    public void importData() throws IOException, CsvValidationException {
+    public void importData(String mode) throws IOException, CsvValidationException {
+        String importMode = mode == null || mode.isBlank() ? IMPORT_MODE_COPY : mode.toLowerCase();
+        if (!List.of(IMPORT_MODE_COPY, IMPORT_MODE_BATCH, IMPORT_MODE_JPA).contains(importMode)) {
+            throw new IllegalArgumentException("Недопустимый режим импорта: " + mode);
+        }
+
         // Очистка БД перед импортом
         clearDatabase();
 
-        // Порядок импорта для соблюдения зависимостей
-        importPublishingCompanies();
-        importAuthors();
-        importStyles();
-        importBooks();
-        importAuthorships();
-        importBookStyles();
+        if (IMPORT_MODE_COPY.equals(importMode)) {
+            csvCopyImporter.importAll(Paths.get(exportDir));
+        } else if (IMPORT_MODE_BATCH.equals(importMode)) {
+            csvBatchImporter.importAll(Paths.get(exportDir));
+        } else {
+            // Порядок импорта для соблюдения зависимостей
+            importPublishingCompanies();
+            importAuthors();
+            importStyles();
+            importBooks();
+            // Ссылки и повторы в файлах связей проверяются в памяти, без запросов на строку
+            ImportKeys keys = ImportKeys.load(bookRepository, authorRepository, stylesRepository,
+                    authorshipRepository, bookStylesRepository);
+            importAuthorships(keys);
+            importBookStyles(keys);
+        }
+        // Каталог заменён целиком — копии данных в памяти перестраиваются после фиксации транзакции
+        eventPublisher.publishEvent(CatalogChangedEvent.all());
         logger.info("Импорт данных завершён.");
     }
 
@@ -96,113 +141,58 @@ public class CsvService {
                 "END;\n" +
                 "$$;";
         jdbcTemplate.execute(sql);
+        // TRUNCATE выполняется в обход Hibernate: без очистки кэша второго уровня save() нашёл бы там
+        // удалённые издательства, жанры и авторов и выполнил UPDATE вместо INSERT. После фиксации кэш
+        // очищается ещё раз — от данных, прочитанных параллельными транзакциями до неё
+        evictSecondLevelCache();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictSecondLevelCache();
+            }
+        });
         logger.info("База данных очищена перед импортом данных.");
     }
 
+    private void evictSecondLevelCache() {
+        entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictAllRegions();
+    }
+
     // =================================================================
     //                            ЭКСПОРТ
     // =================================================================
 
     private void exportAuthors() throws IOException {
         String[] header = {"id", "fio", "birth_date", "country", "nickname"};
-        List<Author> authors = authorRepository.findAll();
-
-        try (FileOutputStream fos = new FileOutputStream(exportDir + "/authors.csv");
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter bw = new BufferedWriter(osw)) {
-
-            // Запись BOM
-            bw.write('\uFEFF');
-            bw.flush();
-
-            try (CSVWriter writer = new CSVWriter(
-                    bw,
-                    CSVWriter.DEFAULT_SEPARATOR,
-                    CSVWriter.NO_QUOTE_CHARACTER,
-                    CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-                    CSVWriter.DEFAULT_LINE_END)) {
-
-                writer.writeNext(header);
-                for (Author author : authors) {
-                    String[] data = {
-                            author.getId() != null ? String.valueOf(author.getId()) : "",
-                            author.getFio(),
-                            author.getBirthDate(),
-                            author.getCountry(),
-                            author.getNickname()
-                    };
-                    writer.writeNext(data);
-                }
-            }
-            logger.info("Экспортировано {} авторов (authors.csv).", authors.size());
-        }
+        exportTable("authors.csv", header, "SELECT id, fio, birth_date, country, nickname FROM authors",
+                rs -> new String[]{
+                        String.valueOf(rs.getInt("id")),
+                        rs.getString("fio"),
+                        rs.getString("birth_date"),
+                        rs.getString("country"),
+                        rs.getString("nickname")
+                }, "авторов");
     }
 
     private void exportPublishingCompanies() throws IOException {
         String[] header = {"name", "establishment_year", "contact_info", "city"};
-        List<PublishingCompany> companies = publishingCompanyRepository.findAll();
-
-        try (FileOutputStream fos = new FileOutputStream(exportDir + "/publishing_companies.csv");
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter bw = new BufferedWriter(osw)) {
-
-            bw.write('\uFEFF');
-            bw.flush();
-
-            try (CSVWriter writer = new CSVWriter(
-                    bw,
-                    CSVWriter.DEFAULT_SEPARATOR,
-                    CSVWriter.NO_QUOTE_CHARACTER,
-                    CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-                    CSVWriter.DEFAULT_LINE_END)) {
-
-                writer.writeNext(header);
-                for (PublishingCompany company : companies) {
-                    String estYear = (company.getEstablishmentYear() == null)
-                            ? ""
-                            : String.valueOf(company.getEstablishmentYear());
-                    String[] data = {
-                            company.getName(),
-                            estYear,
-                            company.getContactInfo(),
-                            company.getCity()
+        exportTable("publishing_companies.csv", header,
+                "SELECT name, establishment_year, contact_info, city FROM publishing_companies",
+                rs -> {
+                    LocalDate establishmentYear = rs.getObject("establishment_year", LocalDate.class);
+                    return new String[]{
+                            rs.getString("name"),
+                            establishmentYear == null ? "" : String.valueOf(establishmentYear),
+                            rs.getString("contact_info"),
+                            rs.getString("city")
                     };
-                    writer.writeNext(data);
-                }
-            }
-            logger.info("Экспортировано {} издательств (publishing_companies.csv).", companies.size());
-        }
+                }, "издательств");
     }
 
     private void exportStyles() throws IOException {
         String[] header = {"id", "name"};
-        List<Styles> styles = stylesRepository.findAll();
-
-        try (FileOutputStream fos = new FileOutputStream(exportDir + "/styles.csv");
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter bw = new BufferedWriter(osw)) {
-
-            bw.write('\uFEFF');
-            bw.flush();
-
-            try (CSVWriter writer = new CSVWriter(
-                    bw,
-                    CSVWriter.DEFAULT_SEPARATOR,
-                    CSVWriter.NO_QUOTE_CHARACTER,
-                    CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-                    CSVWriter.DEFAULT_LINE_END)) {
-
-                writer.writeNext(header);
-                for (Styles style : styles) {
-                    String[] data = {
-                            style.getId() != null ? String.valueOf(style.getId()) : "",
-                            style.getName()
-                    };
-                    writer.writeNext(data);
-                }
-            }
-            logger.info("Экспортировано {} стилей (styles.csv).", styles.size());
-        }
+        exportTable("styles.csv", header, "SELECT id, name FROM styles",
+                rs -> new String[]{String.valueOf(rs.getLong("id")), rs.getString("name")}, "стилей");
     }
 
     private void exportBooks() throws IOException {
@@ -210,90 +200,73 @@ public class CsvService {
                 "isbn", "name", "publication_year", "age_limit",
                 "publishing_company", "page_count", "language", "cost", "count_of_books"
         };
-        List<Book> books = bookRepository.findAll();
-
-        try (FileOutputStream fos = new FileOutputStream(exportDir + "/books.csv");
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter bw = new BufferedWriter(osw)) {
-
-            bw.write('\uFEFF');
-            bw.flush();
-
-            try (CSVWriter writer = new CSVWriter(
-                    bw,
-                    CSVWriter.DEFAULT_SEPARATOR,
-                    CSVWriter.NO_QUOTE_CHARACTER,
-                    CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-                    CSVWriter.DEFAULT_LINE_END)) {
-
-                writer.writeNext(header);
-                for (Book book : books) {
-                    String pubYear = (book.getPublicationYear() == null)
-                            ? ""
-                            : String.valueOf(book.getPublicationYear());
-                    String pubCompany = (book.getPublishingCompany() != null)
-                            ? book.getPublishingCompany().getName()
-                            : "";
-                    String[] data = {
-                            book.getIsbn(),
-                            book.getName(),
-                            pubYear,
-                            String.valueOf(book.getAgeLimit()),
-                            pubCompany,
-                            String.valueOf(book.getPageCount()),
-                            book.getLanguage(),
-                            String.valueOf(book.getCost()),
-                            String.valueOf(book.getCountOfBooks())
+        exportTable("books.csv", header,
+                "SELECT isbn, name, publication_year, age_limit, publishing_company, page_count, language, " +
+                        "cost, count_of_books FROM books",
+                rs -> {
+                    LocalDate publicationYear = rs.getObject("publication_year", LocalDate.class);
+                    String publishingCompany = rs.getString("publishing_company");
+                    return new String[]{
+                            rs.getString("isbn"),
+                            rs.getString("name"),
+                            publicationYear == null ? "" : String.valueOf(publicationYear),
+                            String.valueOf(rs.getFloat("age_limit")),
+                            publishingCompany != null ? publishingCompany : "",
+                            String.valueOf(rs.getInt("page_count")),
+                            rs.getString("language"),
+                            String.valueOf(rs.getBigDecimal("cost")),
+                            String.valueOf(rs.getInt("count_of_books"))
                     };
-                    writer.writeNext(data);
-                }
-            }
-            logger.info("Экспортировано {} книг (books.csv).", books.size());
-        }
+                }, "книг");
     }
 
     private void exportAuthorships() throws IOException {
-        String[] header = {"book_isbn", "author_id"};
-        List<Authorship> authorships = authorshipRepository.findAll();
-
-        try (FileOutputStream fos = new FileOutputStream(exportDir + "/authorships.csv");
-             OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-             BufferedWriter bw = new BufferedWriter(osw)) {
-
-            bw.write('\uFEFF');
-            bw.flush();
-
-            try (CSVWriter writer = new CSVWriter(
-                    bw,
-                    CSVWriter.DEFAULT_SEPARATOR,
-                    CSVWriter.NO_QUOTE_CHARACTER,
-                    CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-                    CSVWriter.DEFAULT_LINE_END)) {
-
-                writer.writeNext(header);
-                for (Authorship authorship : authorships) {
-                    String[] data = {
-                            authorship.getBook().getIsbn(),
-                            (authorship.getAuthor().getId() != null ? String.valueOf(authorship.getAuthor().getId()) : "")
-                    };
-                    writer.writeNext(data);
-                }
-            }
-            logger.info("Экспортировано {} авторств (authorships.csv).", authorships.size());
-        }
+        String[] header = {"book_isbn", "author_id", "author_order"};
+        exportTable("authorships.csv", header, "SELECT book_isbn, author_id, author_order FROM authorships",
+                rs -> new String[]{
+                        rs.getString("book_isbn"),
+                        String.valueOf(rs.getInt("author_id")),
+                        String.valueOf(rs.getInt("author_order"))
+                }, "авторств");
     }
 
     private void exportBookStyles() throws IOException {
         String[] header = {"book_isbn", "style_id"};
-        List<BookStyles> bookStyles = bookStylesRepository.findAll();
+        exportTable("book_styles.csv", header, "SELECT book_isbn, style FROM book_styles",
+                rs -> new String[]{rs.getString("book_isbn"), String.valueOf(rs.getLong("style"))},
+                "связей книг со стилями");
+    }
+
+    /**
+     * Строка результата запроса экспорта → поля строки CSV.
+     */
+    @FunctionalInterface
+    private interface CsvRowMapper {
+        String[] map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Выгружает результат запроса в файл каталога экспорта: строки читаются серверным курсором
+     * PostgreSQL порциями по EXPORT_FETCH_SIZE и записываются в файл по мере чтения, поэтому
+     * память не зависит от размера таблицы. Курсор работает только внутри транзакции (exportData).
+     *
+     * @param description Что выгружено — для сообщения в журнале («авторов», «книг»...).
+     */
+    private void exportTable(String fileName, String[] header, String sql, CsvRowMapper mapper,
+                             String description) throws IOException {
+        // Отдельный шаблон с fetchSize: общий jdbcTemplate используется и другими запросами
+        JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streamingTemplate.setFetchSize(EXPORT_FETCH_SIZE);
 
-        try (FileOutputStream fos = new FileOutputStream(exportDir + "/book_styles.csv");
+        try (FileOutputStream fos = new FileOutputStream(exportDir + "/" + fileName);
              OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
              BufferedWriter bw = new BufferedWriter(osw)) {
 
+            // Запись BOM
             bw.write('\uFEFF');
             bw.flush();
 
+            long[] count = {0};
             try (CSVWriter writer = new CSVWriter(
                     bw,
                     CSVWriter.DEFAULT_SEPARATOR,
@@ -302,15 +275,15 @@ public class CsvService {
                     CSVWriter.DEFAULT_LINE_END)) {
 
                 writer.writeNext(header);
-                for (BookStyles bs : bookStyles) {
-                    String[] data = {
-                            bs.getBook().getIsbn(),
-                            (bs.getStyleEntity().getId() != null ? String.valueOf(bs.getStyleEntity().getId()) : "")
-                    };
-                    writer.writeNext(data);
+                streamingTemplate.query(sql, (RowCallbackHandler) rs -> {
+                    writer.writeNext(mapper.map(rs));
+                    count[0]++;
+                });
+                if (writer.checkError()) {
+                    throw new IOException("Ошибка записи файла " + fileName);
                 }
             }
-            logger.info("Экспортировано {} связей книг со стилями (book_styles.csv).", bookStyles.size());
+            logger.info("Экспортировано {} {} ({}).", count[0], description, fileName);
         }
     }
 
@@ -322,7 +295,7 @@ public class CsvService {
      * Метод для попытки пропуска BOM, если он есть.
      * @param in входной поток
      */
-    private void skipBomIfPresent(BufferedInputStream in) throws IOException {
+    static void skipBomIfPresent(BufferedInputStream in) throws IOException {
         in.mark(3);  // Запоминаем первые 3 байта
         int b1 = in.read();
         int b2 = in.read();
@@ -337,7 +310,7 @@ public class CsvService {
     /**
      * Создаёт CSVReader, который принудительно игнорирует кавычки и парсит поля по запятой.
      */
-    private CSVReader buildCsvReader(InputStreamReader isr) {
+    static CSVReader buildCsvReader(InputStreamReader isr) {
         // Настраиваем парсер, чтобы не ожидать кавычки:
         CSVParser parser = new CSVParserBuilder()
                 .withSeparator(',')
@@ -587,7 +560,7 @@ public class CsvService {
                                     .orElseThrow(() -> new RuntimeException("Издательство не найдено: " + publishingCompanyName));
                         }
 
-                        Optional<Book> existingBook = bookRepository.findById(isbn);
+                        Optional<Book> existingBook = findBook(isbn);
                         if (existingBook.isPresent()) {
                             // Обновление
                             Book book = existingBook.get();
@@ -612,7 +585,9 @@ public class CsvService {
                             book.setLanguage(language);
                             book.setCost(new java.math.BigDecimal(cost));
                             book.setCountOfBooks(countOfBooks);
-                            bookRepository.save(book);
+                            // Отсутствие книги уже проверено, поэтому вставка без merge
+                            bookRepository.insert(book);
+                            isbnFilter.add(isbn);
                         }
                         imported++;
                     } catch (NumberFormatException e) {
@@ -626,7 +601,19 @@ public class CsvService {
         }
     }
 
-    private void importAuthorships() throws IOException, CsvValidationException {
+    // Книга по ISBN; ISBN, которых точно нет в каталоге (по фильтру Блума), в базе не ищутся
+    private Optional<Book> findBook(String isbn) {
+        if (!isbnFilter.mightContain(isbn)) {
+            return Optional.empty();
+        }
+        Optional<Book> book = bookRepository.findById(isbn);
+        if (book.isEmpty()) {
+            isbnFilter.recordFalsePositive();
+        }
+        return book;
+    }
+
+    private void importAuthorships(ImportKeys keys) throws IOException, CsvValidationException {
         Path filePath = Paths.get(exportDir + "/authorships.csv");
         if (!Files.exists(filePath)) {
             logger.warn("authorships.csv не найден, пропуск импорта авторств.");
@@ -644,6 +631,8 @@ public class CsvService {
                 reader.readNext();
 
                 int imported = 0;
+                // Следующий порядковый номер автора по ISBN — для файлов без столбца author_order
+                Map<String, Integer> nextAuthorOrder = new HashMap<>();
                 String[] nextLine;
                 while ((nextLine = reader.readNext()) != null) {
                     if (nextLine.length < 2) {
@@ -663,20 +652,20 @@ public class CsvService {
                             continue;
                         }
 
-                        Optional<Book> bookOpt = bookRepository.findById(bookIsbn);
-                        Optional<Author> authorOpt = authorRepository.findById(authorId);
-
-                        if (bookOpt.isPresent() && authorOpt.isPresent()) {
-                            Book book = bookOpt.get();
-                            Author author = authorOpt.get();
+                        if (keys.bookExists(bookIsbn) && keys.authorExists(authorId)) {
                             AuthorshipId id = new AuthorshipId(bookIsbn, authorId);
-                            Optional<Authorship> existingAuthorship = authorshipRepository.findById(id);
-                            if (!existingAuthorship.isPresent()) {
+                            if (keys.addAuthorship(bookIsbn, authorId)) {
+                                int authorOrder = nextLine.length > 2 && !nextLine[2].trim().isEmpty()
+                                        ? Integer.parseInt(nextLine[2].trim())
+                                        : nextAuthorOrder.getOrDefault(bookIsbn, 0);
+                                nextAuthorOrder.merge(bookIsbn, authorOrder + 1, Math::max);
                                 Authorship authorship = new Authorship();
                                 authorship.setId(id);
-                                authorship.setBook(book);
-                                authorship.setAuthor(author);
-                                authorshipRepository.save(authorship);
+                                authorship.setBook(entityManager.getReference(Book.class, bookIsbn));
+                                authorship.setAuthor(entityManager.getReference(Author.class, authorId));
+                                authorship.setAuthorOrder(authorOrder);
+                                // Отсутствие авторства уже проверено: persist вместо save, который выполнил бы SELECT
+                                entityManager.persist(authorship);
                                 imported++;
                             } else {
                                 logger.debug("Авторство уже существует: ISBN={}, AuthorID={}", bookIsbn, authorId);
@@ -695,7 +684,7 @@ public class CsvService {
         }
     }
 
-    private void importBookStyles() throws IOException, CsvValidationException {
+    private void importBookStyles(ImportKeys keys) throws IOException, CsvValidationException {
         Path filePath = Paths.get(exportDir + "/book_styles.csv");
         if (!Files.exists(filePath)) {
             logger.warn("book_styles.csv не найден, пропуск импорта стилей книг.");
@@ -732,22 +721,15 @@ public class CsvService {
                             continue;
                         }
 
-                        Optional<Book> bookOpt = bookRepository.findById(bookIsbn);
-                        Optional<Styles> styleOpt = stylesRepository.findById(styleId);
-
-                        if (bookOpt.isPresent() && styleOpt.isPresent()) {
-                            Book book = bookOpt.get();
-                            Styles style = styleOpt.get();
-
+                        if (keys.bookExists(bookIsbn) && keys.styleExists(styleId)) {
                             BookStylesId id = new BookStylesId(bookIsbn, styleId);
-                            Optional<BookStyles> existingBookStyle = bookStylesRepository.findById(id);
 
-                            if (!existingBookStyle.isPresent()) {
+                            if (keys.addBookStyle(bookIsbn, styleId)) {
                                 BookStyles bookStyles = new BookStyles();
                                 bookStyles.setId(id);
-                                bookStyles.setBook(book);
-                                bookStyles.setStyleEntity(style);
-                                bookStylesRepository.save(bookStyles);
+                                bookStyles.setBook(entityManager.getReference(Book.class, bookIsbn));
+                                bookStyles.setStyleEntity(entityManager.getReference(Styles.class, styleId));
+                                entityManager.persist(bookStyles);
                                 imported++;
                             } else {
                                 logger.debug("Связь книги со стилем уже существует: ISBN={}, StyleID={}", bookIsbn, styleId);
@@ -0,0 +1,95 @@
+package org.application.bookstorage.service.csv;
+
+import org.application.bookstorage.repository.AuthorRepository;
+import org.application.bookstorage.repository.AuthorshipRepository;
+import org.application.bookstorage.repository.BookRepository;
+import org.application.bookstorage.repository.BookStylesRepository;
+import org.application.bookstorage.repository.StylesRepository;
+
+import java.util.List;
+
+/**
+ * Ключи каталога, загруженные перед импортом связей (authorships.csv, book_styles.csv):
+ * ISBN книг, идентификаторы авторов и жанров и уже существующие связи. Проверка строки файла —
+ * существуют ли книга и автор (жанр) и нет ли уже такой связи — выполняется в памяти,
+ * в базу отправляются только вставки.
+ *
+ * Связь хранится одним числом long: ячейка ISBN в множестве книг в старших 32 битах и ячейка
+ * идентификатора в множестве авторов (жанров) — в младших. Ячейки неизменны, потому что
+ * множества книг, авторов и жанров после загрузки не пополняются.
+ */
+final class ImportKeys {
+
+    private final StringOpenHashSet isbns;
+    private final LongOpenHashSet authorIds;
+    private final LongOpenHashSet styleIds;
+    private final LongOpenHashSet authorships;
+    private final LongOpenHashSet bookStyles;
+
+    private ImportKeys(List<String> isbns, List<Integer> authorIds, List<Long> styleIds,
+                       List<Object[]> authorships, List<Object[]> bookStyles) {
+        this.isbns = new StringOpenHashSet(isbns.size());
+        isbns.forEach(this.isbns::add);
+        this.authorIds = new LongOpenHashSet(authorIds.size());
+        authorIds.forEach(this.authorIds::add);
+        this.styleIds = new LongOpenHashSet(styleIds.size());
+        styleIds.forEach(this.styleIds::add);
+
+        // Ожидаемое число связей — по одной на книгу
+        this.authorships = new LongOpenHashSet(Math.max(authorships.size(), isbns.size()));
+        for (Object[] key : authorships) {
+            addAuthorship((String) key[0], ((Number) key[1]).intValue());
+        }
+        this.bookStyles = new LongOpenHashSet(Math.max(bookStyles.size(), isbns.size()));
+        for (Object[] key : bookStyles) {
+            addBookStyle((String) key[0], ((Number) key[1]).longValue());
+        }
+    }
+
+    /**
+     * Загружает ключи из базы; вызывается после импорта книг, авторов и жанров.
+     */
+    static ImportKeys load(BookRepository bookRepository, AuthorRepository authorRepository,
+                           StylesRepository stylesRepository, AuthorshipRepository authorshipRepository,
+                           BookStylesRepository bookStylesRepository) {
+        return new ImportKeys(bookRepository.findAllIsbns(), authorRepository.findAllIds(),
+                stylesRepository.findAllIds(), authorshipRepository.findAllKeys(), bookStylesRepository.findAllKeys());
+    }
+
+    boolean bookExists(String isbn) {
+        return isbns.indexOf(isbn) >= 0;
+    }
+
+    boolean authorExists(int authorId) {
+        return authorIds.contains(authorId);
+    }
+
+    boolean styleExists(long styleId) {
+        return styleIds.contains(styleId);
+    }
+
+    /**
+     * Отмечает авторство; книга и автор должны существовать.
+     *
+     * @return false, если такое авторство уже есть.
+     */
+    boolean addAuthorship(String isbn, int authorId) {
+        return authorships.add(pair(isbns.indexOf(isbn), authorIds.indexOf(authorId)));
+    }
+
+    /**
+     * Отмечает связь книги с жанром; книга и жанр должны существовать.
+     *
+     * @return false, если такая связь уже есть.
+     */
+    boolean addBookStyle(String isbn, long styleId) {
+        return bookStyles.add(pair(isbns.indexOf(isbn), styleIds.indexOf(styleId)));
+    }
+
+    private static long pair(int bookSlot, int otherSlot) {
+        if (bookSlot < 0 || otherSlot < 0) {
+            throw new IllegalArgumentException("Связь ссылается на отсутствующую книгу, автора или жанр");
+        }
+        return (long) bookSlot << 32 | otherSlot;
+    }
+}
@@ -0,0 +1,119 @@
+package org.application.bookstorage.service.csv;
+
+/**
+ * Множество чисел long с открытой адресацией (линейное пробирование) в одном массиве long[]:
+ * без объектов-обёрток и узлов, около 16 байт на элемент при заполненности не больше половины.
+ *
+ * indexOf возвращает ячейку элемента — неотрицательное число меньше capacity(), которое
+ * не меняется, пока в множество не добавляются элементы (добавление может перестроить таблицу).
+ */
+final class LongOpenHashSet {
+
+    // Значение свободной ячейки; сам ключ FREE хранится отдельно, в последней ячейке
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean containsFree;
+
+    LongOpenHashSet(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Количество различных значений, которые может вернуть indexOf.
+     */
+    int capacity() {
+        return keys.length + 1;
+    }
+
+    /**
+     * @return Ячейка элемента или -1, если элемента нет.
+     */
+    int indexOf(long key) {
+        if (key == FREE) {
+            return containsFree ? keys.length : -1;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    boolean contains(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return true, если элемента ещё не было.
+     */
+    boolean add(long key) {
+        if (key == FREE) {
+            boolean added = !containsFree;
+            containsFree = true;
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    private int slot(long key) {
+        // fmix64 из MurmurHash3: последовательные идентификаторы расходятся по всей таблице
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb93e65d53e63L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void rehash() {
+        long[] old = keys;
+        allocate(old.length * 2);
+        for (long key : old) {
+            if (key != FREE) {
+                int slot = slot(key);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int length) {
+        keys = new long[length];
+        mask = length - 1;
+    }
+
+    // Степень двойки не меньше удвоенного ожидаемого размера
+    static int tableSize(int expectedSize) {
+        int length = 16;
+        while (length < expectedSize * 2L && length < (1 << 30)) {
+            length <<= 1;
+        }
+        return length;
+    }
+}
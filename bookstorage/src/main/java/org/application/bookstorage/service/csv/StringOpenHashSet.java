@@ -0,0 +1,92 @@
+package org.application.bookstorage.service.csv;
+
+/**
+ * Множество строк с открытой адресацией (линейное пробирование) в массиве String[]:
+ * в отличие от HashSet, на элемент не создаётся узел, хранятся только ссылки на строки.
+ *
+ * indexOf возвращает ячейку элемента — неотрицательное число меньше capacity(), которое
+ * не меняется, пока в множество не добавляются элементы (добавление может перестроить таблицу).
+ */
+final class StringOpenHashSet {
+
+    private String[] keys;
+    private int mask;
+    private int size;
+
+    StringOpenHashSet(int expectedSize) {
+        allocate(LongOpenHashSet.tableSize(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Количество различных значений, которые может вернуть indexOf.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return Ячейка элемента или -1, если элемента (или null) нет.
+     */
+    int indexOf(String key) {
+        if (key == null) {
+            return -1;
+        }
+        int slot = slot(key);
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true, если строки ещё не было; null не добавляется.
+     */
+    boolean add(String key) {
+        if (key == null) {
+            return false;
+        }
+        int slot = slot(key);
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    private int slot(String key) {
+        // Перемешивание String.hashCode (хеширование Фибоначчи): у похожих ISBN близкие хеши
+        return (int) ((key.hashCode() * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void rehash() {
+        String[] old = keys;
+        allocate(old.length * 2);
+        for (String key : old) {
+            if (key != null) {
+                int slot = slot(key);
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int length) {
+        keys = new String[length];
+        mask = length - 1;
+    }
+}
@@ -0,0 +1,33 @@
+package org.application.bookstorage.service.facet;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Условия фасетного фильтра каталога.
+ * Внутри одного фасета значения объединяются по ИЛИ (книга любого из выбранных жанров),
+ * разные фасеты — по И. Пустые и null-поля не ограничивают выборку; границы диапазонов включаются.
+ */
+@Data
+public class BookFacetFilter {
+    // Подстрока для поиска в названии
+    private String search;
+
+    private List<String> genres;
+    private List<String> languages;
+    private List<String> publishers;
+
+    // Диапазон года издания
+    private Integer yearFrom;
+    private Integer yearTo;
+
+    // Диапазон возрастного ограничения
+    private Float ageFrom;
+    private Float ageTo;
+
+    // Диапазон цены
+    private BigDecimal priceFrom;
+    private BigDecimal priceTo;
+}
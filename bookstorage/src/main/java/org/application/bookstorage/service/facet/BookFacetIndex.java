@@ -0,0 +1,420 @@
+package org.application.bookstorage.service.facet;
+
+import lombok.RequiredArgsConstructor;
+import org.application.bookstorage.dto.BookDTO;
+import org.application.bookstorage.dto.BookFacetsDTO;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.BookRepository;
+import org.application.bookstorage.repository.BookSortColumn;
+import org.application.bookstorage.service.search.CatalogSearchIndex;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// LOGGING ADDED
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Фасеты каталога на сжатых битовых картах (RoaringBitmap).
+ * Каждой книге присваивается плотный порядковый номер; для каждого значения фасета
+ * (жанр, язык, издательство, год издания, возрастное ограничение, цена) хранится битовая карта
+ * номеров книг с этим значением. Фильтр — пересечение объединений карт, счётчики фасетов —
+ * мощности пересечений, поэтому запросы к базе данных не нужны.
+ * Индекс строится при запуске и обновляется по событиям CatalogChangedEvent.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookFacetIndex {
+
+    private enum Facet { GENRE, LANGUAGE, PUBLISHER, YEAR, AGE, PRICE }
+
+    // Количество книг, перечитываемых одним запросом при обновлении по событию
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    private final BookRepository bookRepository;
+    private final CatalogSearchIndex searchIndex;
+
+    // LOGGING ADDED
+    private static final Logger logger = LoggerFactory.getLogger(BookFacetIndex.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ISBN -> порядковый номер и обратно
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<FacetValues> books = new ArrayList<>();
+    // Освободившиеся номера удалённых книг. Последний освобождённый занимается первым, поэтому
+    // изменённая книга (removeBook, затем addBook) сохраняет свой номер, и номера остаются плотными
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byGenre = new HashMap<>();
+    private final Map<String, RoaringBitmap> byLanguage = new HashMap<>();
+    private final Map<String, RoaringBitmap> byPublisher = new HashMap<>();
+    private final NavigableMap<Integer, RoaringBitmap> byYear = new TreeMap<>();
+    private final NavigableMap<Float, RoaringBitmap> byAgeLimit = new TreeMap<>();
+    private final NavigableMap<BigDecimal, RoaringBitmap> byPrice = new TreeMap<>();
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * ISBN книг, удовлетворяющих фильтру.
+     */
+    public Set<String> filterIsbns(BookFacetFilter filter) {
+        checkReady();
+        RoaringBitmap search = searchBitmap(filter.getSearch());
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matched = match(filter, search, null);
+            Set<String> isbns = new LinkedHashSet<>();
+            matched.forEach((int ordinal) -> isbns.add(books.get(ordinal).isbn));
+            return isbns;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количество книг по значениям фасетов с учётом фильтра.
+     */
+    public BookFacetsDTO facets(BookFacetFilter filter) {
+        checkReady();
+        RoaringBitmap search = searchBitmap(filter.getSearch());
+        lock.readLock().lock();
+        try {
+            BookFacetsDTO dto = new BookFacetsDTO();
+            dto.setTotal(match(filter, search, null).getCardinality());
+            dto.setGenres(counts(byGenre, match(filter, search, Facet.GENRE), filter.getGenres()));
+            dto.setLanguages(counts(byLanguage, match(filter, search, Facet.LANGUAGE), filter.getLanguages()));
+            dto.setPublishers(counts(byPublisher, match(filter, search, Facet.PUBLISHER), filter.getPublishers()));
+            dto.setPublicationYears(counts(byYear, match(filter, search, Facet.YEAR), null));
+            dto.setAgeLimits(counts(byAgeLimit, match(filter, search, Facet.AGE), null));
+
+            RoaringBitmap priceBase = match(filter, search, Facet.PRICE);
+            dto.setMinPrice(firstPresent(byPrice, priceBase));
+            dto.setMaxPrice(firstPresent(byPrice.descendingMap(), priceBase));
+            return dto;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Построение индекса при запуске приложения: каталог читается потоково.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void build() {
+        rebuild();
+        ready = true;
+    }
+
+    /**
+     * Обновление после фиксации транзакции: изменённые книги перечитываются из базы.
+     * Переименование или удаление жанра меняет жанры его книг — перечитываются книги из события.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    // Индекс обновляется раньше, чем увеличивается версия каталога (CatalogVersion)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        if (event.isAll() || (event.getEntity() == CatalogChangedEvent.Entity.STYLE && !event.hasStyleBooks())) {
+            // LOGGING ADDED
+            logger.info("Перестроение фасетов: {}", event);
+            rebuild();
+        } else if (event.getEntity() == CatalogChangedEvent.Entity.BOOK) {
+            // LOGGING ADDED
+            logger.info("Обновление фасетов: {}", event);
+            refreshBooks(event.getIds().stream().map(String.class::cast).collect(Collectors.toSet()));
+        } else if (event.getEntity() == CatalogChangedEvent.Entity.STYLE && !event.getStyleBooks().isEmpty()) {
+            // LOGGING ADDED
+            logger.info("Обновление фасетов для {} книг жанра: {}", event.getStyleBooks().size(), event);
+            refreshBooks(event.getStyleBooks());
+        }
+    }
+
+    // Книги перечитываются из базы (порциями по REFRESH_BATCH_SIZE ISBN) и заменяются в картах;
+    // книги, которых больше нет, удаляются
+    private void refreshBooks(Set<String> isbns) {
+        List<String> keys = new ArrayList<>(isbns);
+        List<BookDTO> views = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += REFRESH_BATCH_SIZE) {
+            views.addAll(bookRepository.findViewsByIsbns(keys.subList(from, Math.min(from + REFRESH_BATCH_SIZE, keys.size()))));
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<String> missing = new HashSet<>(isbns);
+            for (BookDTO view : views) {
+                removeBook(view.getIsbn());
+                addBook(FacetValues.of(view));
+                missing.remove(view.getIsbn());
+            }
+            missing.forEach(this::removeBook);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        List<FacetValues> values = new ArrayList<>();
+        bookRepository.streamCatalogViews(null, null, BookSortColumn.ISBN, false, view -> values.add(FacetValues.of(view)));
+
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            books.clear();
+            freeOrdinals.clear();
+            all.clear();
+            byGenre.clear();
+            byLanguage.clear();
+            byPublisher.clear();
+            byYear.clear();
+            byAgeLimit.clear();
+            byPrice.clear();
+            values.forEach(this::addBook);
+            all.runOptimize();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // LOGGING ADDED
+        logger.info("Фасеты построены за {} мс: книг {}, жанров {}, языков {}, издательств {}",
+                System.currentTimeMillis() - start, values.size(), byGenre.size(), byLanguage.size(), byPublisher.size());
+    }
+
+    private void addBook(FacetValues values) {
+        Integer free = freeOrdinals.pollFirst();
+        int ordinal;
+        if (free != null) {
+            ordinal = free;
+            books.set(ordinal, values);
+        } else {
+            ordinal = books.size();
+            books.add(values);
+        }
+        ordinals.put(values.isbn, ordinal);
+        all.add(ordinal);
+        values.genres.forEach(genre -> bitmap(byGenre, genre).add(ordinal));
+        if (values.language != null) {
+            bitmap(byLanguage, values.language).add(ordinal);
+        }
+        if (values.publisher != null) {
+            bitmap(byPublisher, values.publisher).add(ordinal);
+        }
+        if (values.year != null) {
+            bitmap(byYear, values.year).add(ordinal);
+        }
+        bitmap(byAgeLimit, values.ageLimit).add(ordinal);
+        if (values.price != null) {
+            bitmap(byPrice, values.price).add(ordinal);
+        }
+    }
+
+    private void removeBook(String isbn) {
+        Integer ordinal = ordinals.remove(isbn);
+        if (ordinal == null) {
+            return;
+        }
+        FacetValues values = books.get(ordinal);
+        books.set(ordinal, null);
+        freeOrdinals.addFirst(ordinal);
+        all.remove(ordinal);
+        values.genres.forEach(genre -> unset(byGenre, genre, ordinal));
+        unset(byLanguage, values.language, ordinal);
+        unset(byPublisher, values.publisher, ordinal);
+        unset(byYear, values.year, ordinal);
+        unset(byAgeLimit, values.ageLimit, ordinal);
+        unset(byPrice, values.price, ordinal);
+    }
+
+    // Книги, удовлетворяющие всем условиям фильтра, кроме условия фасета except
+    private RoaringBitmap match(BookFacetFilter filter, RoaringBitmap search, Facet except) {
+        RoaringBitmap result = all.clone();
+        if (search != null) {
+            result.and(search);
+        }
+        if (except != Facet.GENRE && isSet(filter.getGenres())) {
+            result.and(union(byGenre, filter.getGenres()));
+        }
+        if (except != Facet.LANGUAGE && isSet(filter.getLanguages())) {
+            result.and(union(byLanguage, filter.getLanguages()));
+        }
+        if (except != Facet.PUBLISHER && isSet(filter.getPublishers())) {
+            result.and(union(byPublisher, filter.getPublishers()));
+        }
+        if (except != Facet.YEAR && (filter.getYearFrom() != null || filter.getYearTo() != null)) {
+            result.and(range(byYear, filter.getYearFrom(), filter.getYearTo()));
+        }
+        if (except != Facet.AGE && (filter.getAgeFrom() != null || filter.getAgeTo() != null)) {
+            result.and(range(byAgeLimit, filter.getAgeFrom(), filter.getAgeTo()));
+        }
+        if (except != Facet.PRICE && (filter.getPriceFrom() != null || filter.getPriceTo() != null)) {
+            result.and(range(byPrice, filter.getPriceFrom(), filter.getPriceTo()));
+        }
+        return result;
+    }
+
+    // Поиск по названию выполняется поисковым индексом, найденные ISBN переводятся в порядковые номера
+    private RoaringBitmap searchBitmap(String search) {
+        if (search == null || search.isBlank()) {
+            return null;
+        }
+        if (!searchIndex.isReady()) {
+            throw new IllegalStateException("Поисковый индекс ещё не построен");
+        }
+        Set<String> isbns = searchIndex.searchBookIsbns(search);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        lock.readLock().lock();
+        try {
+            for (String isbn : isbns) {
+                Integer ordinal = ordinals.get(isbn);
+                if (ordinal != null) {
+                    bitmap.add(ordinal);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return bitmap;
+    }
+
+    private void checkReady() {
+        if (!ready) {
+            throw new IllegalStateException("Индекс фасетов ещё не построен");
+        }
+    }
+
+    private static boolean isSet(Collection<?> values) {
+        return values != null && !values.isEmpty();
+    }
+
+    private static RoaringBitmap union(Map<String, RoaringBitmap> bitmaps, Collection<String> keys) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (String key : keys) {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    private static <T extends Comparable<T>> RoaringBitmap range(NavigableMap<T, RoaringBitmap> bitmaps, T from, T to) {
+        NavigableMap<T, RoaringBitmap> subMap = bitmaps;
+        if (from != null) {
+            subMap = subMap.tailMap(from, true);
+        }
+        if (to != null) {
+            subMap = subMap.headMap(to, true);
+        }
+        return RoaringBitmap.or(subMap.values().iterator());
+    }
+
+    // Счётчики по значениям фасета; значения без книг пропускаются, кроме выбранных в фильтре
+    private static <T extends Comparable<T>> Map<T, Integer> counts(Map<T, RoaringBitmap> bitmaps, RoaringBitmap base,
+                                                                   Collection<T> selected) {
+        Map<T, Integer> counts = new TreeMap<>();
+        bitmaps.forEach((value, bitmap) -> {
+            int count = RoaringBitmap.andCardinality(base, bitmap);
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        if (selected != null) {
+            selected.forEach(value -> counts.putIfAbsent(value, 0));
+        }
+        return counts;
+    }
+
+    private static BigDecimal firstPresent(NavigableMap<BigDecimal, RoaringBitmap> bitmaps, RoaringBitmap base) {
+        for (Map.Entry<BigDecimal, RoaringBitmap> entry : bitmaps.entrySet()) {
+            if (RoaringBitmap.intersects(base, entry.getValue())) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static <T> RoaringBitmap bitmap(Map<T, RoaringBitmap> bitmaps, T key) {
+        return bitmaps.computeIfAbsent(key, k -> new RoaringBitmap());
+    }
+
+    private static <T> void unset(Map<T, RoaringBitmap> bitmaps, T key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    // Значения фасетов одной книги (нужны, чтобы убрать книгу из карт при изменении)
+    private static final class FacetValues {
+        private final String isbn;
+        private final List<String> genres;
+        private final String language;
+        private final String publisher;
+        private final Integer year;
+        private final Float ageLimit;
+        private final BigDecimal price;
+
+        private FacetValues(String isbn, List<String> genres, String language, String publisher,
+                            Integer year, Float ageLimit, BigDecimal price) {
+            this.isbn = isbn;
+            this.genres = genres;
+            this.language = language;
+            this.publisher = publisher;
+            this.year = year;
+            this.ageLimit = ageLimit;
+            this.price = price;
+        }
+
+        private static FacetValues of(BookDTO view) {
+            return new FacetValues(
+                    view.getIsbn(),
+                    view.getGenres() != null ? new ArrayList<>(new LinkedHashSet<>(view.getGenres())) : new ArrayList<>(),
+                    view.getLanguage(),
+                    view.getPublishingCompany(),
+                    view.getPublicationYear() != null ? view.getPublicationYear().getYear() : null,
+                    view.getAgeLimit(),
+                    view.getCost());
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package org.application.bookstorage.service.isbn;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.BookRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// LOGGING ADDED
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Фильтр Блума по ISBN книг каталога: быстрый ответ «такой книги точно нет» без запроса к базе.
+ * Ответ mightContain(isbn) == false гарантирует отсутствие книги; true означает, что книгу
+ * нужно искать в базе (с вероятностью около 1% её там не окажется).
+ *
+ * ISBN добавляется в фильтр при сохранении книги, до фиксации транзакции, чтобы книга была видна
+ * дальнейшим проверкам той же транзакции (импорт CSV), и ещё раз по событию после фиксации.
+ * Удалённые книги из фильтра не убираются; фильтр перестраивается в фоновом потоке после
+ * массовых изменений каталога (событие «весь каталог»), при переполнении и при росте
+ * наблюдаемой доли ложных срабатываний. Пока фильтр не построен, все проверки идут в базу.
+ *
+ * Метрики: isbn.filter.checks (тег result = miss | maybe), isbn.filter.false.positives,
+ * isbn.filter.fpp (тег kind = expected | observed), isbn.filter.entries.
+ */
+@Component
+public class IsbnBloomFilter {
+
+    // LOGGING ADDED
+    private static final Logger logger = LoggerFactory.getLogger(IsbnBloomFilter.class);
+
+    private static final double TARGET_FPP = 0.01;
+    // Минимальная ёмкость фильтра и запас на рост каталога между перестроениями
+    private static final long MIN_CAPACITY = 100_000;
+    private static final int CAPACITY_FACTOR = 2;
+    // Перестроение, если ожидаемая или наблюдаемая доля ложных срабатываний превысила целевую вдвое;
+    // наблюдаемая учитывается только после достаточного количества проверок
+    private static final double REBUILD_FPP = 2 * TARGET_FPP;
+    private static final long MIN_OBSERVED_CHECKS = 1_000;
+    // Перестроение может долго ждать чтения из базы (импорт CSV держит блокировку TRUNCATE до фиксации):
+    // больше этого количества ISBN, добавленных за время ожидания, не запоминается — такое
+    // перестроение отбрасывается и запускается заново, а до тех пор работает прежний фильтр
+    private static final int MAX_PENDING_ADDS = 10_000;
+
+    private final BookRepository bookRepository;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "isbn-filter-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    // null — фильтр ещё не построен
+    private volatile Bits bits;
+    // ISBN, добавленные во время перестроения (не null, пока оно идёт); доступ под lock
+    private Set<String> pendingAdds;
+    // Добавлений во время перестроения оказалось больше MAX_PENDING_ADDS; доступ под lock
+    private boolean pendingOverflow;
+    private final Object lock = new Object();
+
+    private final Counter misses;
+    private final Counter maybes;
+    private final Counter falsePositives;
+    // Счётчики с последнего перестроения — для наблюдаемой доли ложных срабатываний
+    private final AtomicLong missesSinceRebuild = new AtomicLong();
+    private final AtomicLong falsePositivesSinceRebuild = new AtomicLong();
+
+    public IsbnBloomFilter(BookRepository bookRepository, MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        this.misses = Counter.builder("isbn.filter.checks").tag("result", "miss")
+                .description("Проверки ISBN, отсечённые фильтром без запроса к базе").register(meterRegistry);
+        this.maybes = Counter.builder("isbn.filter.checks").tag("result", "maybe")
+                .description("Проверки ISBN, переданные в базу").register(meterRegistry);
+        this.falsePositives = Counter.builder("isbn.filter.false.positives")
+                .description("ISBN, пропущенные фильтром, но не найденные в базе").register(meterRegistry);
+        Gauge.builder("isbn.filter.fpp", this, IsbnBloomFilter::expectedFpp).tag("kind", "expected")
+                .description("Ожидаемая доля ложных срабатываний по заполненности фильтра").register(meterRegistry);
+        Gauge.builder("isbn.filter.fpp", this, IsbnBloomFilter::observedFpp).tag("kind", "observed")
+                .description("Доля ложных срабатываний среди отсутствующих ISBN с последнего перестроения").register(meterRegistry);
+        Gauge.builder("isbn.filter.entries", this, filter -> {
+            Bits current = filter.bits;
+            return current != null ? current.entries.get() : 0;
+        }).description("Количество ISBN в фильтре (повторные добавления не учитываются)").register(meterRegistry);
+    }
+
+    /**
+     * false — книги с таким ISBN точно нет; true — книгу нужно искать в базе.
+     */
+    public boolean mightContain(String isbn) {
+        Bits current = bits;
+        if (current == null || isbn == null) {
+            return true;
+        }
+        if (current.mightContain(isbn)) {
+            maybes.increment();
+            return true;
+        }
+        misses.increment();
+        missesSinceRebuild.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Отмечает ISBN как существующий. Вызывается при сохранении книги.
+     */
+    public void add(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        synchronized (lock) {
+            Bits current = bits;
+            if (current != null) {
+                current.put(isbn);
+            }
+            if (pendingAdds != null && !pendingOverflow) {
+                pendingAdds.add(isbn);
+                if (pendingAdds.size() > MAX_PENDING_ADDS) {
+                    pendingAdds.clear();
+                    pendingOverflow = true;
+                }
+            }
+        }
+        Bits current = bits;
+        if (current != null && current.expectedFpp() > REBUILD_FPP) {
+            scheduleRebuild("переполнение");
+        }
+    }
+
+    /**
+     * Сообщает, что ISBN, пропущенного фильтром, в базе не оказалось.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+        falsePositivesSinceRebuild.incrementAndGet();
+        if (missesSinceRebuild.get() + falsePositivesSinceRebuild.get() >= MIN_OBSERVED_CHECKS
+                && observedFpp() > REBUILD_FPP) {
+            scheduleRebuild("ложные срабатывания");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        scheduleRebuild("запуск");
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isAll()) {
+            scheduleRebuild(event.toString());
+        } else if (event.getEntity() == CatalogChangedEvent.Entity.BOOK) {
+            // ISBN удалённых книг тоже попадают в фильтр — это лишь лишнее ложное срабатывание
+            event.getIds().forEach(id -> add((String) id));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void scheduleRebuild(String reason) {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            // LOGGING ADDED
+            logger.info("Запланировано перестроение фильтра ISBN: {}", reason);
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    private void rebuild() {
+        // Сбрасываем флаг до чтения базы: изменения, зафиксированные после чтения, запланируют новое перестроение
+        rebuildScheduled.set(false);
+        synchronized (lock) {
+            pendingAdds = new HashSet<>();
+            pendingOverflow = false;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            List<String> isbns = bookRepository.findAllIsbns();
+            Bits rebuilt = new Bits(Math.max(MIN_CAPACITY, (long) isbns.size() * CAPACITY_FACTOR), TARGET_FPP);
+            isbns.forEach(rebuilt::put);
+
+            boolean overflow;
+            synchronized (lock) {
+                overflow = pendingOverflow;
+                if (!overflow) {
+                    // Книги, сохранённые во время чтения, могли не попасть в прочитанный список
+                    pendingAdds.forEach(rebuilt::put);
+                    bits = rebuilt;
+                }
+                pendingAdds = null;
+            }
+            if (overflow) {
+                scheduleRebuild("добавления во время перестроения");
+                return;
+            }
+            missesSinceRebuild.set(0);
+            falsePositivesSinceRebuild.set(0);
+
+            // LOGGING ADDED
+            logger.info("Фильтр ISBN построен за {} мс: {} ISBN, {} бит, {} хеш-функций",
+                    System.currentTimeMillis() - start, rebuilt.entries.get(), rebuilt.size, rebuilt.hashCount);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                pendingAdds = null;
+            }
+            // LOGGING ADDED
+            logger.error("Не удалось построить фильтр ISBN: {}", e.getMessage(), e);
+        }
+    }
+
+    private double expectedFpp() {
+        Bits current = bits;
+        return current != null ? current.expectedFpp() : 1.0;
+    }
+
+    private double observedFpp() {
+        long negatives = missesSinceRebuild.get() + falsePositivesSinceRebuild.get();
+        return negatives == 0 ? 0.0 : (double) falsePositivesSinceRebuild.get() / negatives;
+    }
+
+    /**
+     * Битовый массив фильтра. Позиции битов — двойное хеширование 64-битного хеша строки:
+     * h1 + i * h2 для i = 0 .. hashCount - 1.
+     */
+    private static final class Bits {
+        private final long size;
+        private final int hashCount;
+        private final AtomicLongArray words;
+        private final AtomicLong bitCount = new AtomicLong();
+        private final AtomicLong entries = new AtomicLong();
+
+        private Bits(long capacity, double fpp) {
+            // Оптимальные m = -n ln p / (ln 2)^2 и k = m / n * ln 2
+            long bitsNeeded = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.size = (bitsNeeded + 63) / 64 * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) size / capacity * Math.log(2)));
+            this.words = new AtomicLongArray((int) (size / 64));
+        }
+
+        private void put(String isbn) {
+            long hash = hash(isbn);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            boolean changed = false;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, size);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(index);
+                    if ((word & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(index, word, word | mask));
+                if ((word & mask) == 0) {
+                    bitCount.incrementAndGet();
+                    changed = true;
+                }
+            }
+            if (changed) {
+                entries.incrementAndGet();
+            }
+        }
+
+        private boolean mightContain(String isbn) {
+            long hash = hash(isbn);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Доля ложных срабатываний при текущей заполненности: (доля единичных битов)^k
+        private double expectedFpp() {
+            return Math.pow((double) bitCount.get() / size, hashCount);
+        }
+
+        // FNV-1a по символам с финальным перемешиванием (fmix64 из MurmurHash3)
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb93e65d53e63L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
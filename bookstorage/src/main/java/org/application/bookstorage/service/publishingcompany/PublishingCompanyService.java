@@ -1,6 +1,7 @@
 package org.application.bookstorage.service.publishingcompany;
 
 import org.application.bookstorage.dao.PublishingCompany;
+import org.application.bookstorage.dto.PublisherSummaryDTO;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +13,6 @@ public interface PublishingCompanyService {
     PublishingCompany updatePublishingCompany(String name, PublishingCompany company);
     void deletePublishingCompanies(List<String> names);
     List<PublishingCompany> searchPublishingCompaniesByName(String name);
+    // Сводка по книгам издательства (пустой Optional, если издательство не найдено)
+    Optional<PublisherSummaryDTO> getPublisherSummary(String name);
 }
@@ -3,13 +3,20 @@ package org.application.bookstorage.service.publishingcompany;
 import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.Book;
 import org.application.bookstorage.dao.PublishingCompany;
+import org.application.bookstorage.dto.PublisherSummaryDTO;
+import org.application.bookstorage.event.CatalogChangedEvent;
 import org.application.bookstorage.repository.BookRepository;
 import org.application.bookstorage.repository.PublishingCompanyRepository;
+import org.application.bookstorage.service.search.CatalogSearchIndex;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 // LOGGING ADDED
 import org.slf4j.Logger;
@@ -22,6 +29,8 @@ public class PublishingCompanyServiceImpl implements PublishingCompanyService {
 
     private final PublishingCompanyRepository publishingCompanyRepository;
     private final BookRepository bookRepository;
+    private final CatalogSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     // LOGGING ADDED: Инициализация логгера для этого сервиса
     private static final Logger logger = LoggerFactory.getLogger(PublishingCompanyServiceImpl.class);
@@ -30,6 +39,7 @@ public class PublishingCompanyServiceImpl implements PublishingCompanyService {
     public PublishingCompany createPublishingCompany(PublishingCompany company) {
         logger.info("Создание издательства: {}", company);
         PublishingCompany savedCompany = publishingCompanyRepository.save(company);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(CatalogChangedEvent.Entity.PUBLISHING_COMPANY, savedCompany.getName()));
         logger.info("Издательство успешно создано: {}", savedCompany.getName());
         return savedCompany;
     }
@@ -73,6 +83,9 @@ public class PublishingCompanyServiceImpl implements PublishingCompanyService {
                 throw new RuntimeException("Издательство с названием " + newName + " уже существует.");
             }
 
+            List<String> isbns = oldCompany.getBooks().stream().map(Book::getIsbn).collect(Collectors.toList());
+            Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(isbns);
+
             // Создаём новое издательство
             PublishingCompany newCompany = new PublishingCompany();
             newCompany.setName(newName);
@@ -95,6 +108,11 @@ public class PublishingCompanyServiceImpl implements PublishingCompanyService {
             publishingCompanyRepository.delete(oldCompany);
             logger.info("Старое издательство {} удалено", originalName);
 
+            eventPublisher.publishEvent(CatalogChangedEvent.of(CatalogChangedEvent.Entity.PUBLISHING_COMPANY,
+                    Arrays.asList(originalName, newName)));
+            eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(isbns, before,
+                    bookRepository.findBookLinks(isbns)));
+
             return newCompany;
         } else {
             // Если название не меняется, просто обновляем остальные поля
@@ -102,6 +120,7 @@ public class PublishingCompanyServiceImpl implements PublishingCompanyService {
             oldCompany.setContactInfo(updatedCompany.getContactInfo());
             oldCompany.setCity(updatedCompany.getCity());
             PublishingCompany savedOld = publishingCompanyRepository.save(oldCompany);
+            eventPublisher.publishEvent(CatalogChangedEvent.of(CatalogChangedEvent.Entity.PUBLISHING_COMPANY, originalName));
             logger.info("Издательство {} обновлено (без смены имени)", originalName);
             return savedOld;
         }
@@ -115,15 +134,40 @@ public class PublishingCompanyServiceImpl implements PublishingCompanyService {
             logger.error("Некоторые издательства не найдены для удаления. Ожидается {} , найдено {}", names.size(), companies.size());
             throw new RuntimeException("Некоторые издательства не найдены для удаления.");
         }
+        // Книги издательств удаляются каскадно
+        List<String> deletedIsbns = companies.stream()
+                .flatMap(company -> company.getBooks().stream())
+                .map(Book::getIsbn)
+                .collect(Collectors.toList());
+        Map<String, CatalogChangedEvent.BookLinks> before = bookRepository.lockBookLinks(deletedIsbns);
         publishingCompanyRepository.deleteAll(companies);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(CatalogChangedEvent.Entity.PUBLISHING_COMPANY, names));
+        if (!deletedIsbns.isEmpty()) {
+            eventPublisher.publishEvent(CatalogChangedEvent.ofBooks(deletedIsbns, before,
+                    bookRepository.findBookLinks(deletedIsbns)));
+        }
         logger.info("Издательства успешно удалены: {}", names);
     }
 
     @Override
     public List<PublishingCompany> searchPublishingCompaniesByName(String name) {
         logger.info("Поиск издательств, содержащих: {}", name);
-        List<PublishingCompany> result = publishingCompanyRepository.findByNameContainingIgnoreCase(name);
+        List<PublishingCompany> result = searchIndex.isReady()
+                ? searchIndex.searchPublishingCompanies(name)
+                : publishingCompanyRepository.findByNameContainingIgnoreCase(name);
         logger.info("Найдено {} издательств по запросу '{}'", result.size(), name);
         return result;
     }
+
+    @Override
+    public Optional<PublisherSummaryDTO> getPublisherSummary(String name) {
+        logger.info("Получение сводки по издательству: {}", name);
+        if (!publishingCompanyRepository.existsById(name)) {
+            logger.warn("Издательство с именем {} не найдено", name);
+            return Optional.empty();
+        }
+        PublisherSummaryDTO summary = bookRepository.findPublisherSummary(name);
+        logger.info("Сводка по издательству {}: книг {}, экземпляров {}", name, summary.getTitleCount(), summary.getCopiesInStock());
+        return Optional.of(summary);
+    }
 }
@@ -0,0 +1,317 @@
+package org.application.bookstorage.service.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * BK-дерево по расстоянию Левенштейна для поиска с опечатками.
+ * Термины документа — каждая его строка целиком и каждое слово строки в поисковой форме
+ * NgramIndex.searchForm, поэтому опечатки прощаются и в запросах на другой письменности.
+ * Поиск с радиусом k вычисляет расстояние только до узлов, прошедших отсечение
+ * по неравенству треугольника (потомки узла на расстоянии d от запроса просматриваются
+ * только по рёбрам d - k .. d + k), а не до каждого термина.
+ *
+ * Удалённые термины остаются в дереве пустыми узлами-развилками; когда таких узлов становится
+ * больше половины, дерево перестраивается из живых терминов.
+ */
+class BkTree<K, V> {
+
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Меньше этого количества узлов дерево не перестраивается ради пустых узлов
+    private static final int MIN_COMPACT_SIZE = 64;
+
+    private final Function<V, K> keyExtractor;
+    private final Function<V, List<String>> textExtractor;
+    private final Comparator<V> order;
+
+    private final Map<K, Document<V>> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node<K> root;
+    private int nodeCount;
+    private int emptyNodeCount;
+
+    /**
+     * @param keyExtractor  Ключ документа.
+     * @param textExtractor Строки документа, по которым ведётся поиск (null-значения пропускаются).
+     * @param order         Порядок документов с одинаковым расстоянием.
+     */
+    BkTree(Function<V, K> keyExtractor, Function<V, List<String>> textExtractor, Comparator<V> order) {
+        this.keyExtractor = keyExtractor;
+        this.textExtractor = textExtractor;
+        this.order = order;
+    }
+
+    /**
+     * Допустимое расстояние для термина: для коротких слов опечатка меняет слово целиком,
+     * поэтому слова до двух символов сравниваются точно, до пяти — с одной правкой.
+     */
+    static int allowedDistance(String term, int maxDistance) {
+        if (term.length() <= 2) {
+            return 0;
+        }
+        if (term.length() <= 5) {
+            return Math.min(1, maxDistance);
+        }
+        return maxDistance;
+    }
+
+    static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Добавляет документ или заменяет документ с тем же ключом.
+     */
+    void put(V value) {
+        lock.writeLock().lock();
+        try {
+            K key = keyExtractor.apply(value);
+            removeInternal(key);
+            Document<V> document = new Document<>(value, terms(value));
+            documents.put(key, document);
+            for (String term : document.terms) {
+                insert(term, key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(key);
+            if (nodeCount >= MIN_COMPACT_SIZE && emptyNodeCount * 2 > nodeCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Полностью заменяет содержимое дерева.
+     */
+    void rebuild(Collection<V> values) {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            for (V value : values) {
+                documents.put(keyExtractor.apply(value), new Document<>(value, terms(value)));
+            }
+            compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Документы, похожие на запрос: запрос целиком отличается от строки или слова документа
+     * не более чем на maxDistance правок, либо каждое слово многословного запроса похоже
+     * на какое-то слово документа и сумма правок не больше maxDistance.
+     *
+     * @return Найденные документы по возрастанию расстояния, при равном — в порядке order.
+     */
+    List<V> search(String query, int maxDistance) {
+        String normalizedQuery = NgramIndex.searchForm(query);
+        if (normalizedQuery == null || normalizedQuery.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<K, Integer> distances = new HashMap<>();
+        List<V> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            distances.putAll(find(normalizedQuery, allowedDistance(normalizedQuery, maxDistance)));
+
+            List<String> words = words(normalizedQuery);
+            if (words.size() > 1) {
+                Map<K, Integer> combined = null;
+                for (String word : words) {
+                    Map<K, Integer> matches = find(word, allowedDistance(word, maxDistance));
+                    if (combined == null) {
+                        combined = matches;
+                    } else {
+                        combined.keySet().retainAll(matches.keySet());
+                        combined.replaceAll((key, distance) -> distance + matches.get(key));
+                    }
+                }
+                combined.forEach((key, distance) -> {
+                    if (distance <= maxDistance) {
+                        distances.merge(key, distance, Math::min);
+                    }
+                });
+            }
+
+            distances.keySet().forEach(key -> result.add(documents.get(key).value));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.sort(Comparator.comparingInt((V value) -> distances.get(keyExtractor.apply(value))).thenComparing(order));
+        return result;
+    }
+
+    // Минимальное расстояние от термина до терминов каждого документа в радиусе maxDistance
+    private Map<K, Integer> find(String term, int maxDistance) {
+        Map<K, Integer> result = new HashMap<>();
+        if (root == null) {
+            return result;
+        }
+        Deque<Node<K>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<K> node = stack.pop();
+            int distance = levenshtein(term, node.term);
+            if (distance <= maxDistance) {
+                for (K key : node.keys) {
+                    result.merge(key, distance, Math::min);
+                }
+            }
+            for (Map.Entry<Integer, Node<K>> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    stack.push(child.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private void insert(String term, K key) {
+        if (root == null) {
+            root = new Node<>(term);
+            nodeCount++;
+            root.keys.add(key);
+            return;
+        }
+        Node<K> node = root;
+        while (true) {
+            int distance = levenshtein(term, node.term);
+            if (distance == 0) {
+                if (node.keys.isEmpty()) {
+                    emptyNodeCount--;
+                }
+                node.keys.add(key);
+                return;
+            }
+            Node<K> child = node.children.get(distance);
+            if (child == null) {
+                child = new Node<>(term);
+                child.keys.add(key);
+                node.children.put(distance, child);
+                nodeCount++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    private void removeInternal(K key) {
+        Document<V> old = documents.remove(key);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.terms) {
+            Node<K> node = lookup(term);
+            if (node != null && node.keys.remove(key) && node.keys.isEmpty()) {
+                emptyNodeCount++;
+            }
+        }
+    }
+
+    private Node<K> lookup(String term) {
+        Node<K> node = root;
+        while (node != null) {
+            int distance = levenshtein(term, node.term);
+            if (distance == 0) {
+                return node;
+            }
+            node = node.children.get(distance);
+        }
+        return null;
+    }
+
+    // Перестроение дерева из терминов текущих документов
+    private void compact() {
+        root = null;
+        nodeCount = 0;
+        emptyNodeCount = 0;
+        for (Map.Entry<K, Document<V>> entry : documents.entrySet()) {
+            for (String term : entry.getValue().terms) {
+                insert(term, entry.getKey());
+            }
+        }
+    }
+
+    private Set<String> terms(V value) {
+        Set<String> terms = new HashSet<>();
+        for (String text : textExtractor.apply(value)) {
+            String normalized = NgramIndex.searchForm(text);
+            if (normalized != null && !normalized.isEmpty()) {
+                terms.add(normalized);
+                terms.addAll(words(normalized));
+            }
+        }
+        return terms;
+    }
+
+    private static List<String> words(String normalized) {
+        List<String> words = new ArrayList<>();
+        for (String word : WORD_SEPARATORS.split(normalized)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static final class Node<K> {
+        private final String term;
+        private final Set<K> keys = new HashSet<>();
+        // Ребро помечено расстоянием от термина узла до термина потомка
+        private final Map<Integer, Node<K>> children = new HashMap<>();
+
+        private Node(String term) {
+            this.term = term;
+        }
+    }
+
+    private static final class Document<V> {
+        private final V value;
+        private final Set<String> terms;
+
+        private Document(V value, Set<String> terms) {
+            this.value = value;
+            this.terms = terms;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.application.bookstorage.service.search;
+
+import lombok.RequiredArgsConstructor;
+import org.application.bookstorage.dao.Author;
+import org.application.bookstorage.dao.PublishingCompany;
+import org.application.bookstorage.dao.Styles;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.AuthorRepository;
+import org.application.bookstorage.repository.BookNameView;
+import org.application.bookstorage.repository.BookRepository;
+import org.application.bookstorage.repository.PublishingCompanyRepository;
+import org.application.bookstorage.repository.StylesRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// LOGGING ADDED
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Поисковый индекс каталога в памяти: названия книг, ФИО и псевдонимы авторов,
+ * названия издательств и жанров. Поиск по подстроке не зависит от письменности
+ * («Tolstoy» находит «Толстой» и наоборот).
+ * Строится при запуске приложения и обновляется по событиям CatalogChangedEvent
+ * после фиксации транзакций, поэтому поиск по подстроке не обращается к базе данных.
+ * Пока индекс не построен (isReady() == false), сервисы ищут через репозитории.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogSearchIndex {
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final PublishingCompanyRepository publishingCompanyRepository;
+    private final StylesRepository stylesRepository;
+
+    // LOGGING ADDED
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSearchIndex.class);
+
+    private final NgramIndex<String, BookNameView> books = new NgramIndex<>(
+            BookNameView::getIsbn,
+            book -> Collections.singletonList(book.getName()),
+            Comparator.comparing(BookNameView::getIsbn));
+
+    private final NgramIndex<Integer, Author> authors = new NgramIndex<>(
+            Author::getId,
+            author -> Arrays.asList(author.getFio(), author.getNickname()),
+            Comparator.comparing(Author::getFio, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Author::getId));
+
+    // Те же строки авторов для поиска с опечатками
+    private final BkTree<Integer, Author> authorsFuzzy = new BkTree<>(
+            Author::getId,
+            author -> Arrays.asList(author.getFio(), author.getNickname()),
+            Comparator.comparing(Author::getFio, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Author::getId));
+
+    private final NgramIndex<String, PublishingCompany> publishingCompanies = new NgramIndex<>(
+            PublishingCompany::getName,
+            company -> Collections.singletonList(company.getName()),
+            Comparator.comparing(PublishingCompany::getName, String.CASE_INSENSITIVE_ORDER));
+
+    private final NgramIndex<Long, Styles> styles = new NgramIndex<>(
+            Styles::getId,
+            style -> Collections.singletonList(style.getName()),
+            Comparator.comparing(Styles::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Styles::getId));
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Приводит строку к виду, в котором она сравнивается при поиске
+     * (Unicode NFKC, нижний регистр, ё → е, схлопывание пробелов).
+     */
+    public static String normalize(String value) {
+        return NgramIndex.normalize(value);
+    }
+
+    /**
+     * ISBN книг, название которых содержит запрос.
+     */
+    public Set<String> searchBookIsbns(String query) {
+        return books.search(query).stream()
+                .map(BookNameView::getIsbn)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * ISBN книг, название которых содержит запрос, если запрос достаточно избирателен.
+     * null — запрос короче трёх символов (в форме поиска) или совпадений больше limit:
+     * такой набор ISBN невыгодно передавать в SQL, фильтр по подстроке лучше выполнит сама база.
+     */
+    public Set<String> searchBookIsbns(String query, int limit) {
+        String queryForm = NgramIndex.searchForm(query);
+        if (queryForm != null && !queryForm.isEmpty() && queryForm.length() < NgramIndex.GRAM) {
+            return null;
+        }
+        List<BookNameView> found = books.search(query, limit);
+        if (found == null) {
+            return null;
+        }
+        return found.stream()
+                .map(BookNameView::getIsbn)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Авторы, ФИО или псевдоним которых содержат запрос.
+     * Возвращаются копии без связей (authorships == null).
+     */
+    public List<Author> searchAuthors(String query) {
+        return authors.search(query).stream()
+                .map(CatalogSearchIndex::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Авторы, ФИО которых содержит запрос.
+     */
+    public List<Author> searchAuthorsByFio(String query) {
+        String queryForm = NgramIndex.searchForm(query);
+        return authors.search(query).stream()
+                .filter(author -> author.getFio() != null && NgramIndex.searchForm(author.getFio()).contains(queryForm))
+                .map(CatalogSearchIndex::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Авторы, ФИО или псевдоним которых содержат запрос или отличаются от него
+     * не более чем на maxDistance правок (см. BkTree.search).
+     * Сначала идут точные совпадения по подстроке, затем остальные по возрастанию расстояния.
+     */
+    public List<Author> searchAuthorsFuzzy(String query, int maxDistance) {
+        Map<Integer, Author> result = new LinkedHashMap<>();
+        authors.search(query).forEach(author -> result.put(author.getId(), author));
+        authorsFuzzy.search(query, maxDistance).forEach(author -> result.putIfAbsent(author.getId(), author));
+        return result.values().stream()
+                .map(CatalogSearchIndex::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Издательства, название которых содержит запрос. Возвращаются копии без списка книг.
+     */
+    public List<PublishingCompany> searchPublishingCompanies(String query) {
+        return publishingCompanies.search(query).stream()
+                .map(CatalogSearchIndex::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Жанры, название которых содержит запрос. Возвращаются копии без связей.
+     */
+    public List<Styles> searchStyles(String query) {
+        return styles.search(query).stream()
+                .map(CatalogSearchIndex::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Построение индекса при запуске приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void build() {
+        rebuildAll();
+        ready = true;
+    }
+
+    /**
+     * Обновление индекса после фиксации транзакции, изменившей каталог:
+     * затронутые записи перечитываются из базы, отсутствующие — удаляются из индекса.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    // Индекс обновляется раньше, чем увеличивается версия каталога (CatalogVersion)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        if (!ready) {
+            // Индекс ещё не построен — build() прочитает актуальные данные
+            return;
+        }
+        // LOGGING ADDED
+        logger.info("Обновление поискового индекса: {}", event);
+
+        if (event.isAll()) {
+            rebuildAll();
+            return;
+        }
+        switch (event.getEntity()) {
+            case BOOK:
+                refreshBooks(keys(event, String.class));
+                break;
+            case AUTHOR:
+                refreshAuthors(keys(event, Integer.class));
+                break;
+            case PUBLISHING_COMPANY:
+                refreshPublishingCompanies(keys(event, String.class));
+                break;
+            case STYLE:
+                refreshStyles(keys(event, Long.class));
+                break;
+        }
+    }
+
+    private void rebuildAll() {
+        long start = System.currentTimeMillis();
+        books.rebuild(bookRepository.findAllProjectedBy());
+        List<Author> allAuthors = authorRepository.findAll().stream().map(CatalogSearchIndex::copyOf).collect(Collectors.toList());
+        authors.rebuild(allAuthors);
+        authorsFuzzy.rebuild(allAuthors);
+        publishingCompanies.rebuild(publishingCompanyRepository.findAll().stream().map(CatalogSearchIndex::copyOf).collect(Collectors.toList()));
+        styles.rebuild(stylesRepository.findAll().stream().map(CatalogSearchIndex::copyOf).collect(Collectors.toList()));
+
+        // LOGGING ADDED
+        logger.info("Поисковый индекс построен за {} мс: книг {}, авторов {}, издательств {}, жанров {}",
+                System.currentTimeMillis() - start, books.size(), authors.size(), publishingCompanies.size(), styles.size());
+    }
+
+    private void refreshBooks(Set<String> isbns) {
+        Set<String> missing = new HashSet<>(isbns);
+        for (BookNameView book : bookRepository.findByIsbnIn(isbns)) {
+            books.put(book);
+            missing.remove(book.getIsbn());
+        }
+        missing.forEach(books::remove);
+    }
+
+    private void refreshAuthors(Set<Integer> ids) {
+        Set<Integer> missing = new HashSet<>(ids);
+        for (Author author : authorRepository.findAllById(ids)) {
+            Author copy = copyOf(author);
+            authors.put(copy);
+            authorsFuzzy.put(copy);
+            missing.remove(author.getId());
+        }
+        missing.forEach(id -> {
+            authors.remove(id);
+            authorsFuzzy.remove(id);
+        });
+    }
+
+    private void refreshPublishingCompanies(Set<String> names) {
+        Set<String> missing = new HashSet<>(names);
+        for (PublishingCompany company : publishingCompanyRepository.findAllById(names)) {
+            publishingCompanies.put(copyOf(company));
+            missing.remove(company.getName());
+        }
+        missing.forEach(publishingCompanies::remove);
+    }
+
+    private void refreshStyles(Set<Long> ids) {
+        Set<Long> missing = new HashSet<>(ids);
+        for (Styles style : stylesRepository.findAllById(ids)) {
+            styles.put(copyOf(style));
+            missing.remove(style.getId());
+        }
+        missing.forEach(styles::remove);
+    }
+
+    private static <T> Set<T> keys(CatalogChangedEvent event, Class<T> type) {
+        Collection<Object> ids = event.getIds();
+        return ids.stream().map(type::cast).collect(Collectors.toSet());
+    }
+
+    // Индекс хранит собственные копии без ленивых коллекций, чтобы не удерживать сущности Hibernate
+    private static Author copyOf(Author author) {
+        return new Author(author.getId(), author.getFio(), author.getBirthDate(), author.getCountry(), author.getNickname(), null);
+    }
+
+    private static PublishingCompany copyOf(PublishingCompany company) {
+        return new PublishingCompany(company.getName(), company.getEstablishmentYear(), company.getContactInfo(), company.getCity(), null);
+    }
+
+    private static Styles copyOf(Styles style) {
+        return new Styles(style.getId(), style.getName(), null);
+    }
+}
@@ -0,0 +1,264 @@
+package org.application.bookstorage.service.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Инвертированный индекс по триграммам для поиска по подстроке без учёта регистра.
+ * Каждому документу (значение V с ключом K) соответствует несколько строк; документ находится,
+ * если хотя бы одна его строка содержит запрос. Семантика совпадает с lower(x) LIKE '%запрос%',
+ * но строки дополнительно нормализуются (Unicode NFKC, нижний регистр, ё → е, схлопывание пробелов)
+ * и сравниваются в латинской форме (Transliteration), поэтому запрос на одной письменности
+ * находит строки на другой. Форма строк документа вычисляется один раз при добавлении в индекс.
+ *
+ * Поиск читает только память: пересечение списков документов по триграммам запроса
+ * с последующей проверкой подстроки. Запросы короче трёх символов проверяются перебором.
+ */
+class NgramIndex<K, V> {
+
+    static final int GRAM = 3;
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final Function<V, K> keyExtractor;
+    private final Function<V, List<String>> textExtractor;
+    private final Comparator<V> order;
+
+    private final Map<K, Document<V>> documents = new HashMap<>();
+    private final Map<String, Set<K>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param keyExtractor  Ключ документа.
+     * @param textExtractor Строки документа, по которым ведётся поиск (null-значения пропускаются).
+     * @param order         Порядок документов в результате поиска.
+     */
+    NgramIndex(Function<V, K> keyExtractor, Function<V, List<String>> textExtractor, Comparator<V> order) {
+        this.keyExtractor = keyExtractor;
+        this.textExtractor = textExtractor;
+        this.order = order;
+    }
+
+    /**
+     * Приводит строку к общему виду без учёта регистра и вариантов написания символов.
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replace('ё', 'е');
+        return SPACES.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * Форма, в которой строки хранятся в индексе и сравниваются с запросом.
+     */
+    static String searchForm(String value) {
+        return Transliteration.toLatin(normalize(value));
+    }
+
+    /**
+     * Добавляет документ или заменяет документ с тем же ключом.
+     */
+    void put(V value) {
+        lock.writeLock().lock();
+        try {
+            K key = keyExtractor.apply(value);
+            removeInternal(key);
+            Document<V> document = new Document<>(value, normalizedTexts(value));
+            documents.put(key, document);
+            for (String gram : grams(document.texts)) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Полностью заменяет содержимое индекса.
+     */
+    void rebuild(Collection<V> values) {
+        // Новый индекс строится без блокировки, под блокировкой только подменяется содержимое
+        Map<K, Document<V>> newDocuments = new HashMap<>();
+        Map<String, Set<K>> newPostings = new HashMap<>();
+        for (V value : values) {
+            K key = keyExtractor.apply(value);
+            Document<V> document = new Document<>(value, normalizedTexts(value));
+            newDocuments.put(key, document);
+            for (String gram : grams(document.texts)) {
+                newPostings.computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            documents.putAll(newDocuments);
+            postings.clear();
+            postings.putAll(newPostings);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет документы, строки которых содержат запрос.
+     *
+     * @param query Подстрока для поиска; запрос, нормализованная форма которого пуста
+     *              (пробелы, одни ъ и ь), ничего не находит, как в BkTree.search.
+     * @return Найденные документы в порядке order.
+     */
+    List<V> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Ищет документы, строки которых содержат запрос, но не больше limit.
+     * Перебор прекращается, как только найдено больше limit документов.
+     *
+     * @param query Подстрока для поиска (см. search(String)).
+     * @param limit Максимальное количество документов в результате.
+     * @return Найденные документы в порядке order или null, если их больше limit.
+     */
+    List<V> search(String query, int limit) {
+        String normalizedQuery = searchForm(query);
+        List<V> result = new ArrayList<>();
+        if (normalizedQuery == null || normalizedQuery.isEmpty()) {
+            return result;
+        }
+
+        lock.readLock().lock();
+        try {
+            Collection<Document<V>> scanned = normalizedQuery.length() < GRAM
+                    ? documents.values()
+                    : candidates(normalizedQuery).stream().map(documents::get).toList();
+            for (Document<V> document : scanned) {
+                if (document.contains(normalizedQuery)) {
+                    if (result.size() == limit) {
+                        return null;
+                    }
+                    result.add(document.value);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.sort(order);
+        return result;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ключи документов, содержащих все триграммы запроса (пересечение начиная с самого короткого списка)
+    private Collection<K> candidates(String normalizedQuery) {
+        List<Set<K>> lists = new ArrayList<>();
+        for (String gram : grams(Collections.singletonList(normalizedQuery))) {
+            Set<K> keys = postings.get(gram);
+            if (keys == null) {
+                return Collections.emptyList();
+            }
+            lists.add(keys);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        List<K> result = new ArrayList<>();
+        for (K key : lists.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(key);
+            }
+            if (inAll) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    private void removeInternal(K key) {
+        Document<V> old = documents.remove(key);
+        if (old == null) {
+            return;
+        }
+        for (String gram : grams(old.texts)) {
+            Set<K> keys = postings.get(gram);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private List<String> normalizedTexts(V value) {
+        List<String> texts = new ArrayList<>();
+        for (String text : textExtractor.apply(value)) {
+            String form = searchForm(text);
+            if (form != null && !form.isEmpty()) {
+                texts.add(form);
+            }
+        }
+        return texts;
+    }
+
+    private static Set<String> grams(List<String> texts) {
+        Set<String> grams = new HashSet<>();
+        for (String text : texts) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                grams.add(text.substring(i, i + GRAM));
+            }
+        }
+        return grams;
+    }
+
+    private static final class Document<V> {
+        private final V value;
+        private final List<String> texts;
+
+        private Document(V value, List<String> texts) {
+            this.value = value;
+            this.texts = texts;
+        }
+
+        private boolean contains(String normalizedQuery) {
+            for (String text : texts) {
+                if (text.contains(normalizedQuery)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
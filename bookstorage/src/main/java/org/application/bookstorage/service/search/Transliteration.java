@@ -0,0 +1,46 @@
+package org.application.bookstorage.service.search;
+
+/**
+ * Латинская поисковая форма строки: кириллица транслитерируется, а латинские буквы,
+ * которыми одни и те же звуки передают разные системы транслитерации, сводятся к одной
+ * (Толстой, Tolstoy и Tolstoj → tolstoi; Чехов и Chekhow → chekhov).
+ *
+ * Каждый символ заменяется независимо от соседних, поэтому если строка содержит подстроку,
+ * то и её форма содержит форму подстроки: поиск по формам находит всё, что находил
+ * поиск по исходным строкам.
+ */
+final class Transliteration {
+
+    private static final char FIRST_CYRILLIC = 'а';
+    // а … я; ё заменяется на е при нормализации
+    private static final String[] CYRILLIC = {
+            "a", "b", "v", "g", "d", "e", "zh", "z", "i", "i", "k", "l", "m", "n", "o", "p",
+            "r", "s", "t", "u", "f", "kh", "ts", "ch", "sh", "shch", "", "i", "", "e", "iu", "ia"
+    };
+
+    private Transliteration() {
+    }
+
+    /**
+     * @param normalized Строка после NgramIndex.normalize (нижний регистр).
+     */
+    static String toLatin(String normalized) {
+        if (normalized == null) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(normalized.length() + 8);
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c >= FIRST_CYRILLIC && c < FIRST_CYRILLIC + CYRILLIC.length) {
+                result.append(CYRILLIC[c - FIRST_CYRILLIC]);
+            } else if (c == 'y' || c == 'j') {
+                result.append('i');
+            } else if (c == 'w') {
+                result.append('v');
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package org.application.bookstorage.service.styles;
+
+import lombok.RequiredArgsConstructor;
+import org.application.bookstorage.dao.Styles;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.StylesRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// LOGGING ADDED
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Справочник жанров в памяти: поиск по id, по точному названию и по подстроке без учёта регистра.
+ * Жанров немного и меняются они редко, поэтому справочник целиком перечитывается из базы
+ * при запуске и после каждой зафиксированной транзакции, изменившей жанры (событие STYLE).
+ * Читатели работают с неизменяемым снимком, который подменяется одной записью volatile-поля.
+ *
+ * Методы возвращают копии без связей (bookStyles == null): их можно использовать
+ * как ссылку на жанр при сохранении связей книг, но не для изменения самого жанра.
+ */
+@Component
+@RequiredArgsConstructor
+public class StylesDictionary {
+
+    private final StylesRepository stylesRepository;
+
+    // LOGGING ADDED
+    private static final Logger logger = LoggerFactory.getLogger(StylesDictionary.class);
+
+    // null — справочник ещё не загружен
+    private volatile Snapshot snapshot;
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    public Optional<Styles> findById(Long id) {
+        Styles style = snapshot.byId.get(id);
+        return style != null ? Optional.of(copyOf(style)) : Optional.empty();
+    }
+
+    /**
+     * Жанр с точно таким названием без учёта регистра (при дубликатах — с наименьшим id).
+     */
+    public Optional<Styles> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        Styles style = snapshot.byName.get(fold(name));
+        return style != null ? Optional.of(copyOf(style)) : Optional.empty();
+    }
+
+    /**
+     * Первый по id жанр, название которого содержит подстроку без учёта регистра.
+     */
+    public Optional<Styles> findFirstContaining(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        String folded = fold(name);
+        for (Styles style : snapshot.ordered) {
+            if (style.getName() != null && fold(style.getName()).contains(folded)) {
+                return Optional.of(copyOf(style));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void load() {
+        reload();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    // Справочник обновляется раньше, чем увеличивается версия каталога (CatalogVersion)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        if (snapshot == null || !event.affects(CatalogChangedEvent.Entity.STYLE)) {
+            return;
+        }
+        reload();
+    }
+
+    private void reload() {
+        List<Styles> styles = stylesRepository.findAll().stream()
+                .map(StylesDictionary::copyOf)
+                .sorted(Comparator.comparing(Styles::getId))
+                .collect(Collectors.toList());
+        snapshot = new Snapshot(styles);
+
+        // LOGGING ADDED
+        logger.info("Справочник жанров загружен: {} жанров", styles.size());
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static Styles copyOf(Styles style) {
+        return new Styles(style.getId(), style.getName(), null);
+    }
+
+    private static final class Snapshot {
+        private final List<Styles> ordered;
+        private final Map<Long, Styles> byId = new HashMap<>();
+        private final Map<String, Styles> byName = new HashMap<>();
+
+        private Snapshot(List<Styles> ordered) {
+            this.ordered = ordered;
+            for (Styles style : ordered) {
+                byId.put(style.getId(), style);
+                if (style.getName() != null) {
+                    // Список отсортирован по id, поэтому при дубликатах остаётся жанр с наименьшим id
+                    byName.putIfAbsent(fold(style.getName()), style);
+                }
+            }
+        }
+    }
+}
@@ -2,7 +2,11 @@ package org.application.bookstorage.service.styles;
 
 import lombok.RequiredArgsConstructor;
 import org.application.bookstorage.dao.Styles;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.BookStylesRepository;
 import org.application.bookstorage.repository.StylesRepository;
+import org.application.bookstorage.service.search.CatalogSearchIndex;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
@@ -15,10 +19,17 @@ import java.util.Optional;
 public class StylesServiceImpl implements StylesService {
 
     private final StylesRepository stylesRepository;
+    private final BookStylesRepository bookStylesRepository;
+    private final CatalogSearchIndex searchIndex;
+    private final StylesDictionary stylesDictionary;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Styles createStyle(Styles style) {
-        return stylesRepository.save(style);
+        Styles saved = stylesRepository.save(style);
+        // У нового жанра ещё нет книг
+        eventPublisher.publishEvent(CatalogChangedEvent.ofStyle(saved.getId(), List.of()));
+        return saved;
     }
 
     @Override
@@ -37,18 +48,28 @@ public class StylesServiceImpl implements StylesService {
                 .orElseThrow(() -> new RuntimeException("Стиль не найден с id " + id));
         style.setName(styleDetails.getName());
         // Обновление других полей при необходимости
-        return stylesRepository.save(style);
+        Styles updated = stylesRepository.save(style);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofStyle(id, bookStylesRepository.findBookIsbnsByStyleId(id)));
+        return updated;
     }
 
     @Override
     public void deleteStyle(Long id) {
         Styles style = stylesRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Стиль не найден с id " + id));
+        // Связи с книгами удаляются каскадно, поэтому книги жанра читаются до удаления
+        List<String> bookIsbns = bookStylesRepository.findBookIsbnsByStyleId(id);
         stylesRepository.delete(style);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofStyle(id, bookIsbns));
     }
 
     @Override
     public Optional<Styles> getStyleByName(String name) {
+        if (stylesDictionary.isReady()) {
+            // Справочник в памяти: точное совпадение, затем первое частичное — без обращения к базе
+            Optional<Styles> exact = stylesDictionary.findByName(name);
+            return exact.isPresent() ? exact : stylesDictionary.findFirstContaining(name);
+        }
         // Попытка найти жанр с точным совпадением
         Optional<Styles> exactMatch = stylesRepository.findByNameIgnoreCase(name);
         if (exactMatch.isPresent()) {
@@ -66,6 +87,9 @@ public class StylesServiceImpl implements StylesService {
 
     @Override
     public List<Styles> searchStylesByName(String name) {
+        if (searchIndex.isReady()) {
+            return searchIndex.searchStyles(name);
+        }
         return stylesRepository.findByNameContainingIgnoreCase(name);
     }
 }
@@ -0,0 +1,209 @@
+package org.application.bookstorage.service.suggest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Сжатое префиксное дерево (radix trie) для подсказок по префиксу.
+ * Рёбра помечены строками, узлы с единственным потомком без собственных записей склеиваются.
+ * Каждая запись — пара (ключ, вес); в узле хранится максимальный вес записей поддерева,
+ * поэтому top-k по весу находится обходом по убыванию веса без просмотра всего поддерева.
+ *
+ * Один ключ может быть записан под несколькими строками (например, ФИО и псевдоним);
+ * в результате он встречается один раз. Класс не потокобезопасен.
+ */
+class PrefixTrie<K> {
+
+    private final Node<K> root = new Node<>("");
+
+    void insert(String term, K key, long weight) {
+        Node<K> node = root;
+        String rest = term;
+        while (!rest.isEmpty()) {
+            Node<K> child = node.children.get(rest.charAt(0));
+            if (child == null) {
+                child = new Node<>(rest);
+                node.children.put(rest.charAt(0), child);
+                node = child;
+                break;
+            }
+            int common = commonPrefixLength(child.label, rest);
+            if (common < child.label.length()) {
+                // Ребро расходится с термином посередине — делим его
+                Node<K> middle = new Node<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children.put(child.label.charAt(0), child);
+                middle.maxWeight = child.maxWeight;
+                node.children.put(middle.label.charAt(0), middle);
+                child = middle;
+            }
+            node = child;
+            rest = rest.substring(common);
+        }
+        node.entries.put(key, weight);
+        updateMaxWeights(term);
+    }
+
+    void remove(String term, K key) {
+        List<Node<K>> path = path(term);
+        if (path == null) {
+            return;
+        }
+        Node<K> node = path.get(path.size() - 1);
+        if (node.entries.remove(key) == null) {
+            return;
+        }
+        // Удаляем опустевшие узлы и склеиваем узлы с единственным потомком
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node<K> current = path.get(i);
+            Node<K> parent = path.get(i - 1);
+            if (current.entries.isEmpty() && current.children.isEmpty()) {
+                parent.children.remove(current.label.charAt(0));
+            } else if (current.entries.isEmpty() && current.children.size() == 1) {
+                Node<K> only = current.children.values().iterator().next();
+                only.label = current.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+            }
+        }
+        updateMaxWeights(term);
+    }
+
+    /**
+     * Ключи с наибольшим весом среди записей, строки которых начинаются с префикса.
+     * При равном весе порядок определяется строкой записи.
+     *
+     * @param prefix Нормализованный префикс (пустой — все записи).
+     * @param limit  Максимальное количество ключей.
+     */
+    List<K> top(String prefix, int limit) {
+        Node<K> start = root;
+        String rest = prefix;
+        StringBuilder startTerm = new StringBuilder();
+        while (!rest.isEmpty()) {
+            Node<K> child = start.children.get(rest.charAt(0));
+            if (child == null) {
+                return new ArrayList<>();
+            }
+            int common = commonPrefixLength(child.label, rest);
+            if (common < rest.length() && common < child.label.length()) {
+                return new ArrayList<>();
+            }
+            start = child;
+            startTerm.append(child.label);
+            rest = rest.substring(common);
+        }
+
+        // Кандидаты — узлы (вес — максимум поддерева) и записи; при равном весе узел раскрывается раньше,
+        // чтобы записи с тем же весом из него успели попасть в очередь и упорядочились по строке
+        PriorityQueue<Candidate<K>> queue = new PriorityQueue<>(Comparator
+                .comparingLong((Candidate<K> c) -> c.weight).reversed()
+                .thenComparing(c -> c.node == null)
+                .thenComparing(c -> c.term));
+        queue.add(new Candidate<>(start, null, start.maxWeight, startTerm.toString()));
+
+        List<K> result = new ArrayList<>();
+        Set<K> seen = new HashSet<>();
+        while (!queue.isEmpty() && result.size() < limit) {
+            Candidate<K> candidate = queue.poll();
+            if (candidate.node == null) {
+                if (seen.add(candidate.key)) {
+                    result.add(candidate.key);
+                }
+                continue;
+            }
+            for (Map.Entry<K, Long> entry : candidate.node.entries.entrySet()) {
+                queue.add(new Candidate<>(null, entry.getKey(), entry.getValue(), candidate.term));
+            }
+            for (Node<K> child : candidate.node.children.values()) {
+                queue.add(new Candidate<>(child, null, child.maxWeight, candidate.term + child.label));
+            }
+        }
+        return result;
+    }
+
+    // Узлы от корня до узла термина или null, если термина в дереве нет
+    private List<Node<K>> path(String term) {
+        List<Node<K>> path = new ArrayList<>();
+        path.add(root);
+        Node<K> node = root;
+        String rest = term;
+        while (!rest.isEmpty()) {
+            Node<K> child = node.children.get(rest.charAt(0));
+            if (child == null || !rest.startsWith(child.label)) {
+                return null;
+            }
+            node = child;
+            path.add(node);
+            rest = rest.substring(child.label.length());
+        }
+        return path;
+    }
+
+    // Пересчёт максимальных весов от узла термина (или ближайшего существующего предка) к корню
+    private void updateMaxWeights(String term) {
+        List<Node<K>> path = new ArrayList<>();
+        path.add(root);
+        Node<K> node = root;
+        String rest = term;
+        while (!rest.isEmpty()) {
+            Node<K> child = node.children.get(rest.charAt(0));
+            if (child == null) {
+                break;
+            }
+            node = child;
+            path.add(node);
+            rest = rest.substring(Math.min(child.label.length(), rest.length()));
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node<K> current = path.get(i);
+            long max = Long.MIN_VALUE;
+            for (long weight : current.entries.values()) {
+                max = Math.max(max, weight);
+            }
+            for (Node<K> child : current.children.values()) {
+                max = Math.max(max, child.maxWeight);
+            }
+            current.maxWeight = max;
+        }
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node<K> {
+        private String label;
+        private final Map<Character, Node<K>> children = new HashMap<>();
+        private final Map<K, Long> entries = new HashMap<>();
+        private long maxWeight = Long.MIN_VALUE;
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Candidate<K> {
+        private final Node<K> node;
+        private final K key;
+        private final long weight;
+        private final String term;
+
+        private Candidate(Node<K> node, K key, long weight, String term) {
+            this.node = node;
+            this.key = key;
+            this.weight = weight;
+            this.term = term;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.application.bookstorage.service.suggest;
+
+import org.application.bookstorage.dto.SuggestionDTO;
+
+import java.util.List;
+
+public interface SuggestService {
+    /**
+     * Подсказки для форм книги: записи, одно из слов названия которых начинается с префикса,
+     * в порядке убывания количества книг.
+     *
+     * @param type   author, style или publisher.
+     * @param prefix Префикс (без учёта регистра; пустой — самые популярные записи).
+     * @param limit  Максимальное количество подсказок.
+     * @throws IllegalArgumentException неизвестный тип или недопустимый limit.
+     * @throws IllegalStateException    индекс подсказок ещё не построен.
+     */
+    List<SuggestionDTO> suggest(String type, String prefix, int limit);
+}
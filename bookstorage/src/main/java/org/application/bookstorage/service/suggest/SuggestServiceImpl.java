@@ -0,0 +1,407 @@
+package org.application.bookstorage.service.suggest;
+
+import lombok.RequiredArgsConstructor;
+import org.application.bookstorage.dao.Author;
+import org.application.bookstorage.dao.PublishingCompany;
+import org.application.bookstorage.dao.Styles;
+import org.application.bookstorage.dto.SuggestionDTO;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.AuthorRepository;
+import org.application.bookstorage.repository.AuthorshipRepository;
+import org.application.bookstorage.repository.BookRepository;
+import org.application.bookstorage.repository.BookStylesRepository;
+import org.application.bookstorage.repository.PublishingCompanyRepository;
+import org.application.bookstorage.repository.StylesRepository;
+import org.application.bookstorage.service.search.CatalogSearchIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// LOGGING ADDED
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Подсказки для форм добавления и редактирования книги на префиксных деревьях в памяти.
+ * Для каждого типа (авторы, жанры, издательства) строится PrefixTrie по нормализованным
+ * названиям и каждому их слову; вес записи — количество книг.
+ * Деревья строятся при запуске и обновляются по событиям CatalogChangedEvent:
+ * изменённые записи перечитываются по id, а при изменении книг количества меняются на ±1
+ * по связям книги до и после изменения, переданным в событии, и перевставляются только эти записи.
+ */
+@Service
+@RequiredArgsConstructor
+public class SuggestServiceImpl implements SuggestService {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final AuthorRepository authorRepository;
+    private final AuthorshipRepository authorshipRepository;
+    private final PublishingCompanyRepository publishingCompanyRepository;
+    private final StylesRepository stylesRepository;
+    private final BookRepository bookRepository;
+    private final BookStylesRepository bookStylesRepository;
+
+    // LOGGING ADDED
+    private static final Logger logger = LoggerFactory.getLogger(SuggestServiceImpl.class);
+
+    private final Dictionary<Integer> authors = new Dictionary<>();
+    private final Dictionary<String> publishingCompanies = new Dictionary<>();
+    private final Dictionary<Long> styles = new Dictionary<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    @Override
+    public List<SuggestionDTO> suggest(String type, String prefix, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Количество подсказок должно быть от 1 до " + MAX_LIMIT);
+        }
+        Dictionary<?> dictionary = dictionary(type);
+        if (!ready) {
+            throw new IllegalStateException("Индекс подсказок ещё не построен");
+        }
+        String normalized = prefix == null ? "" : CatalogSearchIndex.normalize(prefix);
+
+        lock.readLock().lock();
+        try {
+            return dictionary.top(normalized, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void build() {
+        rebuildAll();
+        ready = true;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    // Подсказки обновляются раньше, чем увеличивается версия каталога (CatalogVersion)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        if (event.isAll()) {
+            rebuildAll();
+            return;
+        }
+        switch (event.getEntity()) {
+            case BOOK:
+                // Книга могла сменить издательство, авторов или жанры
+                if (event.hasBookLinks()) {
+                    applyBookCountDeltas(event);
+                } else {
+                    refreshBookCounts();
+                }
+                break;
+            case AUTHOR:
+                refreshAuthors(keys(event, Integer.class));
+                break;
+            case PUBLISHING_COMPANY:
+                refreshPublishingCompanies(keys(event, String.class));
+                break;
+            case STYLE:
+                refreshStyles(keys(event, Long.class));
+                break;
+        }
+    }
+
+    private Dictionary<?> dictionary(String type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Не указан тип подсказок");
+        }
+        switch (type) {
+            case "author":
+                return authors;
+            case "style":
+                return styles;
+            case "publisher":
+                return publishingCompanies;
+            default:
+                throw new IllegalArgumentException("Неизвестный тип подсказок: " + type);
+        }
+    }
+
+    private void rebuildAll() {
+        long start = System.currentTimeMillis();
+        List<Author> allAuthors = authorRepository.findAll();
+        List<PublishingCompany> allCompanies = publishingCompanyRepository.findAll();
+        List<Styles> allStyles = stylesRepository.findAll();
+        Map<Integer, Long> authorCounts = counts(authorshipRepository.countBooksByAuthor(), Integer.class);
+        Map<String, Long> companyCounts = counts(bookRepository.countBooksByPublishingCompany(), String.class);
+        Map<Long, Long> styleCounts = counts(bookStylesRepository.countBooksByStyle(), Long.class);
+
+        lock.writeLock().lock();
+        try {
+            authors.clear();
+            allAuthors.forEach(this::putAuthor);
+            authors.setWeights(authorCounts);
+
+            publishingCompanies.clear();
+            allCompanies.forEach(this::putPublishingCompany);
+            publishingCompanies.setWeights(companyCounts);
+
+            styles.clear();
+            allStyles.forEach(this::putStyle);
+            styles.setWeights(styleCounts);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // LOGGING ADDED
+        logger.info("Индекс подсказок построен за {} мс: авторов {}, издательств {}, жанров {}",
+                System.currentTimeMillis() - start, allAuthors.size(), allCompanies.size(), allStyles.size());
+    }
+
+    private void refreshBookCounts() {
+        Map<Integer, Long> authorCounts = counts(authorshipRepository.countBooksByAuthor(), Integer.class);
+        Map<String, Long> companyCounts = counts(bookRepository.countBooksByPublishingCompany(), String.class);
+        Map<Long, Long> styleCounts = counts(bookStylesRepository.countBooksByStyle(), Long.class);
+
+        lock.writeLock().lock();
+        try {
+            authors.setWeights(authorCounts);
+            publishingCompanies.setWeights(companyCounts);
+            styles.setWeights(styleCounts);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Разница связей каждой книги до и после изменения: -1 прежним авторам, издательству и жанрам, +1 новым
+    private void applyBookCountDeltas(CatalogChangedEvent event) {
+        Map<Integer, Long> authorDeltas = new HashMap<>();
+        Map<String, Long> companyDeltas = new HashMap<>();
+        Map<Long, Long> styleDeltas = new HashMap<>();
+        for (Object isbn : event.getIds()) {
+            addBookLinks(event.getBefore().get(isbn), -1, authorDeltas, companyDeltas, styleDeltas);
+            addBookLinks(event.getAfter().get(isbn), 1, authorDeltas, companyDeltas, styleDeltas);
+        }
+
+        lock.writeLock().lock();
+        try {
+            authors.addWeights(authorDeltas);
+            publishingCompanies.addWeights(companyDeltas);
+            styles.addWeights(styleDeltas);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addBookLinks(CatalogChangedEvent.BookLinks links, long delta, Map<Integer, Long> authorDeltas,
+                                     Map<String, Long> companyDeltas, Map<Long, Long> styleDeltas) {
+        if (links == null) {
+            return;
+        }
+        links.authorIds().forEach(id -> authorDeltas.merge(id, delta, Long::sum));
+        if (links.publisher() != null) {
+            companyDeltas.merge(links.publisher(), delta, Long::sum);
+        }
+        links.styleIds().forEach(id -> styleDeltas.merge(id, delta, Long::sum));
+    }
+
+    private void refreshAuthors(Set<Integer> ids) {
+        List<Author> found = authorRepository.findAllById(ids);
+        lock.writeLock().lock();
+        try {
+            Set<Integer> missing = new HashSet<>(ids);
+            for (Author entity : found) {
+                putAuthor(entity);
+                missing.remove(entity.getId());
+            }
+            missing.forEach(authors::delete);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void refreshPublishingCompanies(Set<String> names) {
+        List<PublishingCompany> found = publishingCompanyRepository.findAllById(names);
+        lock.writeLock().lock();
+        try {
+            Set<String> missing = new HashSet<>(names);
+            for (PublishingCompany entity : found) {
+                putPublishingCompany(entity);
+                missing.remove(entity.getName());
+            }
+            missing.forEach(publishingCompanies::delete);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void refreshStyles(Set<Long> ids) {
+        List<Styles> found = stylesRepository.findAllById(ids);
+        lock.writeLock().lock();
+        try {
+            Set<Long> missing = new HashSet<>(ids);
+            for (Styles entity : found) {
+                putStyle(entity);
+                missing.remove(entity.getId());
+            }
+            missing.forEach(styles::delete);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putAuthor(Author author) {
+        SuggestionDTO item = new SuggestionDTO();
+        item.setId(String.valueOf(author.getId()));
+        item.setName(author.getFio());
+        item.setNickname(author.getNickname());
+        item.setBirthDate(author.getBirthDate());
+        item.setCountry(author.getCountry());
+        authors.put(author.getId(), item, Arrays.asList(author.getFio(), author.getNickname()));
+    }
+
+    private void putPublishingCompany(PublishingCompany company) {
+        SuggestionDTO item = new SuggestionDTO();
+        item.setId(company.getName());
+        item.setName(company.getName());
+        publishingCompanies.put(company.getName(), item, Arrays.asList(company.getName()));
+    }
+
+    private void putStyle(Styles style) {
+        SuggestionDTO item = new SuggestionDTO();
+        item.setId(String.valueOf(style.getId()));
+        item.setName(style.getName());
+        styles.put(style.getId(), item, Arrays.asList(style.getName()));
+    }
+
+    private static <T> Map<T, Long> counts(List<Object[]> rows, Class<T> keyType) {
+        Map<T, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(keyType.cast(row[0]), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private static <T> Set<T> keys(CatalogChangedEvent event, Class<T> type) {
+        Collection<Object> ids = event.getIds();
+        return ids.stream().map(type::cast).collect(Collectors.toSet());
+    }
+
+    /**
+     * Подсказки одного типа: дерево, отображаемые данные и вес каждой записи.
+     */
+    private static final class Dictionary<K> {
+        private final PrefixTrie<K> trie = new PrefixTrie<>();
+        private final Map<K, SuggestionDTO> items = new HashMap<>();
+        private final Map<K, List<String>> terms = new HashMap<>();
+        private final Map<K, Long> weights = new HashMap<>();
+
+        void put(K key, SuggestionDTO item, List<String> texts) {
+            remove(key);
+            List<String> keyTerms = terms(texts);
+            long weight = weights.getOrDefault(key, 0L);
+            items.put(key, item);
+            terms.put(key, keyTerms);
+            keyTerms.forEach(term -> trie.insert(term, key, weight));
+        }
+
+        void delete(K key) {
+            remove(key);
+            weights.remove(key);
+        }
+
+        private void remove(K key) {
+            List<String> keyTerms = terms.remove(key);
+            if (keyTerms != null) {
+                keyTerms.forEach(term -> trie.remove(term, key));
+            }
+            items.remove(key);
+        }
+
+        // Новые веса; записи, отсутствующие в counts, получают вес 0. Перевставляются только изменившиеся
+        void setWeights(Map<K, Long> counts) {
+            for (K key : new ArrayList<>(items.keySet())) {
+                long weight = counts.getOrDefault(key, 0L);
+                if (weights.getOrDefault(key, 0L) != weight) {
+                    weights.put(key, weight);
+                    for (String term : terms.get(key)) {
+                        trie.remove(term, key);
+                        trie.insert(term, key, weight);
+                    }
+                }
+            }
+            weights.keySet().retainAll(items.keySet());
+        }
+
+        // Изменение весов на разницу deltas. Записи, которых нет в словаре, пропускаются: они удалены
+        // событием своего типа, которое публикуется раньше события книг
+        void addWeights(Map<K, Long> deltas) {
+            deltas.forEach((key, delta) -> {
+                if (delta == 0 || !items.containsKey(key)) {
+                    return;
+                }
+                long weight = Math.max(0L, weights.getOrDefault(key, 0L) + delta);
+                weights.put(key, weight);
+                for (String term : terms.get(key)) {
+                    trie.remove(term, key);
+                    trie.insert(term, key, weight);
+                }
+            });
+        }
+
+        void clear() {
+            new ArrayList<>(items.keySet()).forEach(this::remove);
+            weights.clear();
+        }
+
+        List<SuggestionDTO> top(String prefix, int limit) {
+            List<SuggestionDTO> result = new ArrayList<>();
+            for (K key : trie.top(prefix, limit)) {
+                SuggestionDTO item = items.get(key);
+                SuggestionDTO copy = new SuggestionDTO();
+                copy.setId(item.getId());
+                copy.setName(item.getName());
+                copy.setNickname(item.getNickname());
+                copy.setBirthDate(item.getBirthDate());
+                copy.setCountry(item.getCountry());
+                copy.setBookCount(weights.getOrDefault(key, 0L));
+                result.add(copy);
+            }
+            return result;
+        }
+
+        // Термины записи: нормализованные строки целиком и начиная с каждого следующего слова
+        private static List<String> terms(List<String> texts) {
+            Set<String> result = new HashSet<>();
+            for (String text : texts) {
+                String normalized = CatalogSearchIndex.normalize(text);
+                if (normalized == null || normalized.isEmpty()) {
+                    continue;
+                }
+                result.add(normalized);
+                for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+                    result.add(normalized.substring(i + 1));
+                }
+            }
+            return new ArrayList<>(result);
+        }
+    }
+}
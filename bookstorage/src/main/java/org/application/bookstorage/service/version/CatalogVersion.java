@@ -0,0 +1,57 @@
+package org.application.bookstorage.service.version;
+
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// LOGGING ADDED
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Версия каталога — монотонно растущий счётчик, который увеличивается после фиксации
+ * каждой транзакции, изменившей каталог (по событию CatalogChangedEvent).
+ * Из версии строится ETag ответов на GET-запросы: пока версия не изменилась,
+ * данные каталога те же, и клиенту можно ответить 304 без обращения к базе.
+ *
+ * Версия хранится в памяти, поэтому в ETag добавляется время запуска приложения:
+ * после перезапуска старые ETag не совпадут с новыми.
+ */
+@Component
+public class CatalogVersion {
+
+    // LOGGING ADDED
+    private static final Logger logger = LoggerFactory.getLogger(CatalogVersion.class);
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * ETag для текущей версии каталога (слабый: тело может сжиматься при передаче).
+     */
+    public String etag() {
+        return "W/\"" + epoch + "-" + version.get() + "\"";
+    }
+
+    /**
+     * Увеличение версии после фиксации транзакции.
+     * Выполняется последним из обработчиков события, т.е. после обновления индексов в памяти:
+     * иначе клиент мог бы получить новый ETag вместе с ответом, построенным по устаревшему индексу.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        long current = version.incrementAndGet();
+        // LOGGING ADDED
+        logger.info("Версия каталога увеличена до {}: {}", current, event);
+    }
+}
@@ -0,0 +1,81 @@
+-- Выполняется при каждом запуске после создания/обновления таблиц Hibernate
+-- (spring.jpa.defer-datasource-initialization=true), поэтому все команды идемпотентны.
+
+-- Триграммные GIN-индексы для поиска по подстроке без учёта регистра (lower(x) LIKE '%...%').
+-- Выражение индекса должно совпадать с выражением в запросах репозиториев.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_books_name_trgm ON books USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_authors_fio_trgm ON authors USING gin (lower(fio) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_authors_nickname_trgm ON authors USING gin (lower(nickname) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_publishing_companies_name_trgm ON publishing_companies USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_styles_name_trgm ON styles USING gin (lower(name) gin_trgm_ops);
+
+-- Полнотекстовый поиск с учётом морфологии (конфигурация russian): «войны» находит «Война и мир».
+-- Столбцы вычисляемые, поэтому обновляются при каждой записи строки и не отображаются в сущностях.
+-- Веса для ts_rank: название книги и ФИО автора — A, псевдоним — B, издательство — C.
+ALTER TABLE books ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('russian', coalesce(publishing_company, '')), 'C')) STORED;
+ALTER TABLE authors ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', coalesce(fio, '')), 'A') ||
+    setweight(to_tsvector('russian', coalesce(nickname, '')), 'B')) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_books_search_vector ON books USING gin (search_vector);
+CREATE INDEX IF NOT EXISTS idx_authors_search_vector ON authors USING gin (search_vector);
+
+-- Основной автор книги (автор с наименьшим author_order, при равенстве — с наименьшим id) хранится
+-- в books.primary_author, чтобы сортировка и постраничный вывод по автору читали индекс
+-- (primary_author, isbn), а не выполняли подзапрос для каждой строки. Столбец поддерживают триггеры
+-- на authorships и authors, поэтому он верен при любом способе записи (JPA, пакетный импорт, COPY).
+-- Тела функций записаны в одинарных кавычках: ScriptUtils разбивает скрипт по ';' вне строк.
+ALTER TABLE books ADD COLUMN IF NOT EXISTS primary_author varchar(255);
+CREATE INDEX IF NOT EXISTS idx_books_primary_author_isbn ON books (primary_author, isbn);
+
+CREATE OR REPLACE FUNCTION refresh_primary_author(isbns varchar[]) RETURNS void LANGUAGE sql AS '
+    UPDATE books b SET primary_author = p.fio
+    FROM (SELECT i.isbn, (SELECT a.fio FROM authorships ash JOIN authors a ON a.id = ash.author_id
+                          WHERE ash.book_isbn = i.isbn ORDER BY ash.author_order, ash.author_id LIMIT 1) AS fio
+          FROM (SELECT DISTINCT unnest(isbns) AS isbn) i) p
+    WHERE b.isbn = p.isbn AND b.primary_author IS DISTINCT FROM p.fio';
+
+-- Триггеры уровня оператора: импорт COPY обновляет основных авторов одним UPDATE на весь файл
+CREATE OR REPLACE FUNCTION authorships_refresh_primary_author() RETURNS trigger LANGUAGE plpgsql AS '
+BEGIN
+    IF TG_OP = ''INSERT'' THEN
+        PERFORM refresh_primary_author(ARRAY(SELECT book_isbn FROM new_rows));
+    ELSIF TG_OP = ''UPDATE'' THEN
+        PERFORM refresh_primary_author(ARRAY(SELECT book_isbn FROM new_rows UNION SELECT book_isbn FROM old_rows));
+    ELSE
+        PERFORM refresh_primary_author(ARRAY(SELECT book_isbn FROM old_rows));
+    END IF;
+    RETURN NULL;
+END';
+
+CREATE OR REPLACE FUNCTION authors_refresh_primary_author() RETURNS trigger LANGUAGE plpgsql AS '
+BEGIN
+    PERFORM refresh_primary_author(ARRAY(
+        SELECT ash.book_isbn FROM new_rows n
+        JOIN old_rows o ON o.id = n.id
+        JOIN authorships ash ON ash.author_id = n.id
+        WHERE n.fio IS DISTINCT FROM o.fio));
+    RETURN NULL;
+END';
+
+CREATE OR REPLACE TRIGGER trg_authorships_insert_primary_author AFTER INSERT ON authorships
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION authorships_refresh_primary_author();
+CREATE OR REPLACE TRIGGER trg_authorships_update_primary_author AFTER UPDATE ON authorships
+    REFERENCING NEW TABLE AS new_rows OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION authorships_refresh_primary_author();
+CREATE OR REPLACE TRIGGER trg_authorships_delete_primary_author AFTER DELETE ON authorships
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION authorships_refresh_primary_author();
+CREATE OR REPLACE TRIGGER trg_authors_update_primary_author AFTER UPDATE ON authors
+    REFERENCING NEW TABLE AS new_rows OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION authors_refresh_primary_author();
+
+-- Заполнение столбца для книг, записанных до появления триггеров
+UPDATE books b SET primary_author = (SELECT a.fio FROM authorships ash JOIN authors a ON a.id = ash.author_id
+                                     WHERE ash.book_isbn = b.isbn ORDER BY ash.author_order, ash.author_id LIMIT 1)
+WHERE b.primary_author IS NULL AND EXISTS (SELECT 1 FROM authorships ash WHERE ash.book_isbn = b.isbn);
@@ -158,7 +158,7 @@ document.addEventListener('DOMContentLoaded', function() {
     console.log(`Запрос к авторам: ${query}`); // Логирование запроса
 
     // Отправка AJAX-запроса на сервер для поиска авторов
-    fetch(`/api/authors/search?q=${encodeURIComponent(query)}`)
+    fetch(`/api/suggest?type=author&prefix=${encodeURIComponent(query)}`)
       .then(response => {
         console.log('Получен ответ для авторов:', response); // Логирование ответа
         return response.json();
@@ -177,9 +177,9 @@ document.addEventListener('DOMContentLoaded', function() {
 
         data.forEach(author => {
           const listItem = document.createElement('li');
-          listItem.textContent = `${author.fio}${author.nickname ? ' (' + author.nickname + ')' : ''}, ${author.birthDate || '---'}, ${author.country || '---'}`;
+          listItem.textContent = `${author.name}${author.nickname ? ' (' + author.nickname + ')' : ''}, ${author.birthDate || '---'}, ${author.country || '---'}`;
           listItem.addEventListener('click', function() {
-            inputElement.value = author.fio;
+            inputElement.value = author.name;
             authorIdInput.value = author.id; // Сохраняем ID автора
             suggestionsListElement.innerHTML = '';
             suggestionsListElement.style.display = 'none';
@@ -269,7 +269,7 @@ document.addEventListener('DOMContentLoaded', function() {
       return;
     }
 
-    fetch(`/api/styles/search?q=${encodeURIComponent(query)}`)
+    fetch(`/api/suggest?type=style&prefix=${encodeURIComponent(query)}`)
       .then(response => {
         if (!response.ok) {
           throw new Error('Сбой при поиске жанров');
@@ -472,7 +472,7 @@ document.addEventListener('DOMContentLoaded', function() {
 
     console.log(`Запрос к издательствам: ${query}`);
 
-    fetch(`/api/publishing-companies/search?q=${encodeURIComponent(query)}`)
+    fetch(`/api/suggest?type=publisher&prefix=${encodeURIComponent(query)}`)
       .then(response => {
         if (!response.ok) {
           throw new Error('Сбой при поиске издательств');
@@ -32,9 +32,9 @@ function fetchAuthorData(authorId) {
     });
 }
 
-// Запрашивает книги через API и фильтрует по автору (на клиенте)
+// Запрашивает книги автора через API (фильтрация по автору выполняется на сервере)
 function fetchBooks(authorId, search = '', sortColumn = 'name', sortOrder = 'asc') {
-  let apiUrl = '/api/books';
+  let apiUrl = `/api/authors/${authorId}/books`;
   const params = new URLSearchParams();
   if (search) {
     params.append('search', search);
@@ -52,11 +52,7 @@ function fetchBooks(authorId, search = '', sortColumn = 'name', sortOrder = 'asc
       return response.json();
     })
     .then(books => {
-      // Фильтруем книги: оставляем те, где среди авторов присутствует нужный автор
-      const filtered = books.filter(book =>
-        book.authors && Array.isArray(book.authors) && book.authors.some(a => a.id == authorId)
-      );
-      populateBooksTable(filtered);
+      populateBooksTable(books);
     })
     .catch(error => {
       console.error('Ошибка при загрузке книг:', error);
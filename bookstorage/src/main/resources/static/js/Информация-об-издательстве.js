@@ -32,9 +32,9 @@ function fetchPublisherData(publisherName) {
     });
 }
 
-// Получает список книг через API и фильтрует по издательству (сравнивая название издательства)
+// Получает книги издательства через API (фильтрация по издательству выполняется на сервере)
 function fetchBooks(publisherName, search = '', sortColumn = 'name', sortOrder = 'asc') {
-  let apiUrl = '/api/books';
+  let apiUrl = `/api/publishing-companies/${encodeURIComponent(publisherName)}/books`;
   const params = new URLSearchParams();
   if (search) {
     params.append('search', search);
@@ -52,11 +52,7 @@ function fetchBooks(publisherName, search = '', sortColumn = 'name', sortOrder =
       return response.json();
     })
     .then(books => {
-      // Фильтруем книги: оставляем те, где publishingCompany совпадает с именем издательства
-      const filtered = books.filter(book =>
-        book.publishingCompany && book.publishingCompany === publisherName
-      );
-      populateBooksTable(filtered);
+      populateBooksTable(books);
     })
     .catch(error => {
       console.error('Ошибка при загрузке книг:', error);
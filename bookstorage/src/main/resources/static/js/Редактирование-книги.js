@@ -84,7 +84,7 @@ document.addEventListener('DOMContentLoaded', function() {
       return;
     }
     console.log(`Запрос к авторам: ${query}`);
-    fetch(`/api/authors/search?q=${encodeURIComponent(query)}`)
+    fetch(`/api/suggest?type=author&prefix=${encodeURIComponent(query)}`)
       .then(response => {
         console.log('Получен ответ для авторов:', response);
         if (!response.ok) {
@@ -105,9 +105,9 @@ document.addEventListener('DOMContentLoaded', function() {
         }
         data.forEach(author => {
           const listItem = document.createElement('li');
-          listItem.textContent = `${author.fio}${author.nickname ? ' (' + author.nickname + ')' : ''}, ${author.birthDate || '---'}, ${author.country || '---'}`;
+          listItem.textContent = `${author.name}${author.nickname ? ' (' + author.nickname + ')' : ''}, ${author.birthDate || '---'}, ${author.country || '---'}`;
           listItem.addEventListener('click', function() {
-            inputElement.value = author.fio;
+            inputElement.value = author.name;
             authorIdInput.value = author.id;
             suggestionsListElement.innerHTML = '';
             suggestionsListElement.style.display = 'none';
@@ -370,7 +370,7 @@ document.addEventListener('DOMContentLoaded', function() {
       return;
     }
     console.log(`Запрос к издательствам: ${query}`);
-    fetch(`/api/publishing-companies/search?q=${encodeURIComponent(query)}`)
+    fetch(`/api/suggest?type=publisher&prefix=${encodeURIComponent(query)}`)
       .then(response => {
         if (!response.ok) {
           throw new Error('Сбой при поиске издательств');
@@ -0,0 +1,169 @@
+package org.application.bookstorage.controller.book;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.application.bookstorage.dao.Authorship;
+import org.application.bookstorage.dao.Book;
+import org.application.bookstorage.dao.BookStyles;
+import org.application.bookstorage.event.CatalogChangedEvent;
+import org.application.bookstorage.repository.BookRepository;
+import org.application.bookstorage.support.QueryCountingTestConfig;
+import org.application.bookstorage.support.StatementRecorder;
+import org.application.bookstorage.support.StatementRecorder.RecordedStatement;
+import org.application.bookstorage.support.TestCatalog;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Число SQL-запросов при выводе списка книг не зависит от числа книг (нет N+1).
+ *
+ * Список GET /api/books читается одним запросом JdbcTemplate (findCatalogViews), мимо Hibernate,
+ * поэтому запросы эндпоинта считает обёртка над DataSource, а статистика Hibernate подтверждает,
+ * что сущности при этом не загружаются. Методы репозитория с графом Book.catalog проверяются
+ * статистикой Hibernate: выборка и обход связей, как в BookController.mapToDTO.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(QueryCountingTestConfig.class)
+@ActiveProfiles("test")
+class BookListingQueryCountTest {
+
+    private static final int AUTHORS_PER_BOOK = 2;
+    private static final int STYLES_PER_BOOK = 2;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private TestCatalog testCatalog;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void clearCatalog() {
+        testCatalog.truncate();
+        eventPublisher.publishEvent(CatalogChangedEvent.all());
+    }
+
+    @Test
+    void listEndpointRunsFixedNumberOfStatements() throws Exception {
+        assertThat(listEndpointStatements(5)).isEqualTo(1);
+        assertThat(listEndpointStatements(50)).isEqualTo(1);
+    }
+
+    @Test
+    void catalogEntityGraphLoadsBooksWithOneStatement() {
+        assertThat(entityGraphStatements(5, false)).isEqualTo(1);
+        assertThat(entityGraphStatements(50, false)).isEqualTo(1);
+    }
+
+    @Test
+    void nameSearchEntityGraphLoadsBooksWithOneStatement() {
+        assertThat(entityGraphStatements(5, true)).isEqualTo(1);
+        assertThat(entityGraphStatements(50, true)).isEqualTo(1);
+    }
+
+    private int listEndpointStatements(int books) throws Exception {
+        seedCatalog(books);
+        // Ответы списка кэшируются (CatalogResponseCache) — кэш сбрасывается, чтобы запрос дошёл до базы
+        eventPublisher.publishEvent(CatalogChangedEvent.all());
+
+        statistics.clear();
+        List<RecordedStatement> statements;
+        StatementRecorder.start();
+        try {
+            mockMvc.perform(get("/api/books").param("sort_column", "author"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(books))
+                    .andExpect(jsonPath("$[0].authors.length()").value(AUTHORS_PER_BOOK))
+                    .andExpect(jsonPath("$[0].genres.length()").value(STYLES_PER_BOOK));
+        } finally {
+            statements = StatementRecorder.stop();
+        }
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        return statements.size();
+    }
+
+    private long entityGraphStatements(int books, boolean byName) {
+        seedCatalog(books);
+        // Без кэша второго уровня: связи должны приходить из запроса с графом, а не из кэша
+        entityManagerFactory.getCache().evictAll();
+
+        statistics.clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Образец в регистре названий: lower() для кириллицы зависит от LC_CTYPE базы
+            List<Book> found = byName
+                    ? bookRepository.findByNameContainingIgnoreCase("Книга", Sort.by("name"))
+                    : bookRepository.findAll(Sort.by("name"));
+            assertThat(found).hasSize(books);
+            for (Book book : found) {
+                assertThat(book.getPublishingCompany().getName()).isNotNull();
+                for (Authorship authorship : book.getAuthorships()) {
+                    assertThat(authorship.getAuthor().getFio()).isNotNull();
+                }
+                for (BookStyles bookStyle : book.getBookStyles()) {
+                    assertThat(bookStyle.getStyleEntity().getName()).isNotNull();
+                }
+                assertThat(book.getAuthorships()).hasSize(AUTHORS_PER_BOOK);
+                assertThat(book.getBookStyles()).hasSize(STYLES_PER_BOOK);
+            }
+        });
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Каталог из books книг: у каждой своё издательство, два своих автора и два общих жанра
+    private void seedCatalog(int books) {
+        testCatalog.truncate();
+        jdbcTemplate.update("INSERT INTO publishing_companies (name, city) " +
+                "SELECT 'Издательство ' || i, 'Город' FROM generate_series(1, ?) i", books);
+        jdbcTemplate.update("INSERT INTO authors (id, fio, country) " +
+                "SELECT i, 'Автор ' || i, 'Россия' FROM generate_series(1, ?) i", books * AUTHORS_PER_BOOK);
+        jdbcTemplate.update("INSERT INTO styles (id, name) " +
+                "SELECT i, 'Жанр ' || i FROM generate_series(1, ?) i", STYLES_PER_BOOK);
+        jdbcTemplate.update("INSERT INTO books (isbn, name, publication_year, age_limit, publishing_company, " +
+                "page_count, language, cost, count_of_books) " +
+                "SELECT 'isbn-' || i, 'Книга ' || i, DATE '2000-01-01', 12, 'Издательство ' || i, 100, 'Русский', 9.99, 1 " +
+                "FROM generate_series(1, ?) i", books);
+        jdbcTemplate.update("INSERT INTO authorships (book_isbn, author_id, author_order) " +
+                "SELECT 'isbn-' || i, (i - 1) * ? + k + 1, k FROM generate_series(1, ?) i, generate_series(0, ? - 1) k",
+                AUTHORS_PER_BOOK, books, AUTHORS_PER_BOOK);
+        jdbcTemplate.update("INSERT INTO book_styles (book_isbn, style) " +
+                "SELECT 'isbn-' || i, s FROM generate_series(1, ?) i, generate_series(1, ?) s", books, STYLES_PER_BOOK);
+    }
+}
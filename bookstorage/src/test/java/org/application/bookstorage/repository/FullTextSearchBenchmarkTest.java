@@ -0,0 +1,156 @@
+package org.application.bookstorage.repository;
+
+import org.application.bookstorage.dto.BookDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение задержки полнотекстового поиска (findCatalogViewsFullText, индексы по search_vector)
+ * и поиска по подстроке (findCatalogViews, lower(name) LIKE по триграммному индексу)
+ * на сгенерированном каталоге.
+ *
+ * Запускается только явно: mvn test -Dtest=FullTextSearchBenchmarkTest -Dfulltext.benchmark=true
+ * Размер каталога — -Dfulltext.benchmark.rows (по умолчанию 1 000 000 книг, авторов в пять раз меньше).
+ * Каталог создаётся в транзакции, которая откатывается: тестовая база остаётся прежней.
+ *
+ * Названия книг составлены из слов, собранных из небольшого набора слогов (каждое слово встречается
+ * примерно в 150 названиях), и русского существительного. Каждый запрос — одно такое слово;
+ * выполняются два прохода, задержки берутся из второго.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "fulltext.benchmark", matches = "true")
+class FullTextSearchBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("fulltext.benchmark.rows", 1_000_000);
+    private static final int AUTHORS = Math.max(1, ROWS / 5);
+    private static final int PUBLISHERS = 500;
+    private static final int QUERIES = 40;
+
+    private static final String[] SYLLABLES = {"ка", "ло", "ми", "ра", "ве", "ту", "но", "се", "да", "ри", "пу", "ле",
+            "зо", "ни", "ба", "ко", "ти", "мо", "ру", "же", "ха", "ся", "го", "фе"};
+    // Слова из трёх слогов: 24^3 = 13 824 различных слова
+    private static final int WORDS = SYLLABLES.length * SYLLABLES.length * SYLLABLES.length;
+    private static final String[] NOUNS = {"война", "мира", "дом", "моря", "города", "ночи", "звезда", "дороги",
+            "сердце", "реки", "леса", "огня", "ветер", "зимы", "тайна", "песни", "берега", "времени", "земли", "неба"};
+
+    private static final Logger logger = LoggerFactory.getLogger(FullTextSearchBenchmarkTest.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareFullTextAndLikeLatency() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            long start = System.currentTimeMillis();
+            generateCatalog();
+            logger.info("Каталог из {} книг и {} авторов создан за {} мс",
+                    ROWS, AUTHORS, System.currentTimeMillis() - start);
+
+            List<String> queries = new ArrayList<>();
+            for (int q = 0; q < QUERIES; q++) {
+                queries.add(word(1000 + q * 307));
+            }
+
+            Result like = measure(queries, query -> bookRepository.findCatalogViews(query, null, null,
+                    BookSortColumn.NAME, false, null, null, null));
+            Result fullText = measure(queries, query -> bookRepository.findCatalogViewsFullText(query, null, false));
+            like.log("LIKE (триграммы)");
+            fullText.log("Полнотекстовый поиск");
+
+            // Полнотекстовый поиск находит все совпадения LIKE по целому слову и совпадения в ФИО авторов
+            assertThat(like.rows()).isPositive();
+            assertThat(fullText.rows()).isGreaterThanOrEqualTo(like.rows());
+
+            status.setRollbackOnly();
+        });
+    }
+
+    private Result measure(List<String> queries, Function<String, List<BookDTO>> search) {
+        long[] nanos = new long[queries.size()];
+        long rows = 0;
+        for (int round = 0; round < 2; round++) {
+            rows = 0;
+            for (int i = 0; i < queries.size(); i++) {
+                long start = System.nanoTime();
+                rows += search.apply(queries.get(i)).size();
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        return new Result(nanos, rows);
+    }
+
+    private record Result(long[] sortedNanos, long rows) {
+
+        void log(String name) {
+            logger.info("{}: p50 {} мс, p95 {} мс, в среднем {} строк на запрос", name,
+                    percentile(0.50) / 1_000_000, percentile(0.95) / 1_000_000, rows / sortedNanos.length);
+        }
+
+        private long percentile(double p) {
+            return sortedNanos[Math.min(sortedNanos.length - 1, (int) Math.ceil(p * sortedNanos.length) - 1)];
+        }
+    }
+
+    private void generateCatalog() {
+        jdbcTemplate.execute("TRUNCATE TABLE book_styles, authorships, books, authors, styles, " +
+                "publishing_companies RESTART IDENTITY CASCADE");
+        // Слово с номером n mod WORDS, как word(int); функция удаляется вместе с откатом транзакции
+        int n = SYLLABLES.length;
+        jdbcTemplate.execute("CREATE FUNCTION pg_temp.bench_word(n bigint) RETURNS text LANGUAGE sql IMMUTABLE AS $$ " +
+                "SELECT s[1 + w % " + n + "] || s[1 + w / " + n + " % " + n + "] || s[1 + w / " + n * n + " % " + n + "] " +
+                "FROM (SELECT ARRAY[" + sqlArray(SYLLABLES) + "] AS s, (n % " + WORDS + ")::int AS w) a $$");
+        jdbcTemplate.execute("CREATE FUNCTION pg_temp.bench_fio(id bigint) RETURNS text LANGUAGE sql IMMUTABLE AS $$ " +
+                "SELECT pg_temp.bench_word(id * 31) || ' ' || pg_temp.bench_word(id * 131) || 'ов' $$");
+
+        jdbcTemplate.update("INSERT INTO publishing_companies (name, city) " +
+                "SELECT 'Издательство ' || i, 'Город ' || i % 50 FROM generate_series(1, ?) i", PUBLISHERS);
+        jdbcTemplate.update("INSERT INTO authors (id, fio, country, nickname) " +
+                "SELECT j, pg_temp.bench_fio(j), 'Россия', pg_temp.bench_word(j * 7 + 3) " +
+                "FROM generate_series(1, ?) j", AUTHORS);
+        // Основной автор заполняется сразу — триггеру на authorships не придётся перезаписывать книги
+        jdbcTemplate.update("INSERT INTO books (isbn, name, publication_year, age_limit, publishing_company, " +
+                "page_count, language, cost, count_of_books, primary_author) " +
+                "SELECT format('978-%s', lpad(i::text, 10, '0')), " +
+                "       pg_temp.bench_word(i * 7919::bigint) || ' ' || pg_temp.bench_word(i * 104729::bigint + 17) || ' ' || " +
+                "       (ARRAY[" + sqlArray(NOUNS) + "])[1 + i % " + NOUNS.length + "], " +
+                "       DATE '1950-01-01' + i % 25000, 12, 'Издательство ' || (1 + i % " + PUBLISHERS + "), " +
+                "       100 + i % 900, 'Русский', 100 + i % 1000, i % 50, pg_temp.bench_fio(1 + i % ?) " +
+                "FROM generate_series(1, ?) i", AUTHORS, ROWS);
+        jdbcTemplate.update("INSERT INTO authorships (book_isbn, author_id, author_order) " +
+                "SELECT format('978-%s', lpad(i::text, 10, '0')), 1 + i % ?, 0 FROM generate_series(1, ?) i",
+                AUTHORS, ROWS);
+        jdbcTemplate.execute("ANALYZE publishing_companies, authors, books, authorships");
+    }
+
+    private static String word(int number) {
+        int n = SYLLABLES.length;
+        number %= WORDS;
+        return SYLLABLES[number % n] + SYLLABLES[number / n % n] + SYLLABLES[number / (n * n) % n];
+    }
+
+    private static String sqlArray(String[] values) {
+        return Arrays.stream(values).map(value -> "'" + value + "'").collect(Collectors.joining(", "));
+    }
+}
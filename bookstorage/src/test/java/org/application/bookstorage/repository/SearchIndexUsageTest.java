@@ -0,0 +1,146 @@
+package org.application.bookstorage.repository;
+
+import org.application.bookstorage.support.QueryCountingTestConfig;
+import org.application.bookstorage.support.StatementRecorder;
+import org.application.bookstorage.support.StatementRecorder.RecordedStatement;
+import org.application.bookstorage.support.TestCatalog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Поиск по подстроке (триграммные индексы pg_trgm) и полнотекстовый поиск (индексы по search_vector)
+ * читают GIN-индексы из schema.sql.
+ *
+ * Проверяются запросы, которые действительно отправляют репозитории: обёртка над DataSource
+ * запоминает SQL и параметры вызова, после чего тот же запрос с теми же параметрами выполняется
+ * как EXPLAIN. В тестовом каталоге всего несколько строк, поэтому в транзакции разрешено только
+ * чтение через bitmap-сканирование — единственный способ чтения GIN-индекса. Иначе планировщик
+ * предпочёл бы прочитать таблицу целиком или весь индекс (name, isbn) в порядке сортировки,
+ * а bitmap-сканирование возможно лишь по индексу, выражение которого совпадает с условием запроса.
+ */
+@SpringBootTest
+@Import(QueryCountingTestConfig.class)
+@ActiveProfiles("test")
+class SearchIndexUsageTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private PublishingCompanyRepository publishingCompanyRepository;
+    @Autowired
+    private StylesRepository stylesRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TestCatalog testCatalog;
+
+    @BeforeEach
+    void seedCatalog() {
+        truncateCatalog();
+        jdbcTemplate.update("INSERT INTO publishing_companies (name) VALUES ('Эксмо'), ('Питер')");
+        jdbcTemplate.update("INSERT INTO authors (id, fio, nickname) VALUES (1, 'Лев Толстой', 'Граф'), (2, 'Антон Чехов', 'Антоша Чехонте')");
+        jdbcTemplate.update("INSERT INTO styles (id, name) VALUES (1, 'Роман'), (2, 'Драма')");
+        jdbcTemplate.update("INSERT INTO books (isbn, name, publishing_company, age_limit, page_count, cost, count_of_books) " +
+                "VALUES ('1', 'Война и мир', 'Эксмо', 12, 1225, 10, 1), ('2', 'Чайка', 'Питер', 12, 128, 5, 1)");
+        jdbcTemplate.update("INSERT INTO authorships (book_isbn, author_id, author_order) VALUES ('1', 1, 0), ('2', 2, 0)");
+    }
+
+    @AfterEach
+    void truncateCatalog() {
+        testCatalog.truncate();
+    }
+
+    @Test
+    void bookNameSearchUsesTrigramIndex() {
+        assertThat(plans(() -> bookRepository.findByNameContainingIgnoreCase("Войн", Sort.by("name"))))
+                .anySatisfy(plan -> assertThat(plan).contains("idx_books_name_trgm"));
+        assertThat(plans(() -> bookRepository.findCatalogViews("Войн", null, null, BookSortColumn.NAME,
+                false, null, null, 50)))
+                .anySatisfy(plan -> assertThat(plan).contains("idx_books_name_trgm"));
+    }
+
+    @Test
+    void authorSearchUsesTrigramIndexes() {
+        assertThat(plans(() -> authorRepository.findByFioContainingIgnoreCase("Толст")))
+                .anySatisfy(plan -> assertThat(plan).contains("idx_authors_fio_trgm"));
+        assertThat(plans(() -> authorRepository.findByFioContainingIgnoreCaseOrNicknameContainingIgnoreCase("Граф", "Граф")))
+                .anySatisfy(plan -> assertThat(plan).contains("idx_authors_fio_trgm", "idx_authors_nickname_trgm"));
+    }
+
+    @Test
+    void publisherAndStyleSearchUseTrigramIndexes() {
+        assertThat(plans(() -> publishingCompanyRepository.findByNameContainingIgnoreCase("Питер")))
+                .anySatisfy(plan -> assertThat(plan).contains("idx_publishing_companies_name_trgm"));
+        assertThat(plans(() -> stylesRepository.findByNameContainingIgnoreCase("Роман")))
+                .anySatisfy(plan -> assertThat(plan).contains("idx_styles_name_trgm"));
+    }
+
+    @Test
+    void fullTextSearchUsesSearchVectorIndexes() {
+        assertThat(plans(() -> bookRepository.findCatalogViewsFullText("война толстой", null, false)))
+                .anySatisfy(plan -> assertThat(plan).contains("idx_books_search_vector", "idx_authors_search_vector"));
+    }
+
+    /**
+     * Выполняет поиск в транзакции, где таблицы читаются только bitmap-сканированием, и возвращает планы (EXPLAIN)
+     * всех запросов, отправленных при этом в базу.
+     */
+    private List<String> plans(Runnable search) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            jdbcTemplate.execute("SET LOCAL enable_indexscan = off");
+            jdbcTemplate.execute("SET LOCAL enable_indexonlyscan = off");
+            List<RecordedStatement> statements;
+            StatementRecorder.start();
+            try {
+                search.run();
+            } finally {
+                statements = StatementRecorder.stop();
+            }
+            assertThat(statements).isNotEmpty().allSatisfy(statement -> assertThat(statement.sql()).isNotNull());
+
+            List<String> plans = new ArrayList<>();
+            for (RecordedStatement statement : statements) {
+                plans.add(jdbcTemplate.execute((ConnectionCallback<String>) connection -> explain(connection, statement)));
+            }
+            return plans;
+        });
+    }
+
+    private static String explain(Connection connection, RecordedStatement statement) {
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+            statement.bindTo(explain);
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = explain.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        } catch (Throwable e) {
+            throw new IllegalStateException("EXPLAIN не выполнен: " + statement.sql(), e);
+        }
+    }
+}
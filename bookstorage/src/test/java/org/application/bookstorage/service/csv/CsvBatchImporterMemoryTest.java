@@ -0,0 +1,199 @@
+package org.application.bookstorage.service.csv;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEventListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Потолок памяти пакетного импорта CSV (CsvBatchImporter): на большом сгенерированном каталоге
+ * контекст сохранения не превышает порции csv.import.chunk-size, а занятая память после сборки
+ * мусора растёт только на ключи связей в памяти (ImportKeys), а не на импортированные сущности.
+ *
+ * Размер каталога — -Dcsv.memory-test.rows (по умолчанию 100 000 книг; запрос описывал
+ * проверку на файле в 1 000 000 строк). Импорт выполняется в транзакции, которая откатывается.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CsvBatchImporterMemoryTest {
+
+    private static final int ROWS = Integer.getInteger("csv.memory-test.rows", 100_000);
+    private static final int AUTHORS = Math.max(1, ROWS / 4);
+    private static final int STYLES = 20;
+    private static final int PUBLISHERS = 100;
+
+    // Допустимый рост занятой памяти: постоянная часть (очереди разбора, порция, буферы)
+    // и ключи ImportKeys — ISBN и ячейки открытых таблиц, около 128 байт на книгу
+    private static final long FIXED_HEAP_BYTES = 64L << 20;
+    private static final long HEAP_BYTES_PER_ROW = 128;
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvBatchImporterMemoryTest.class);
+
+    @Autowired
+    private CsvBatchImporter csvBatchImporter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${csv.import.chunk-size}")
+    private int chunkSize;
+
+    @TempDir
+    private Path dir;
+
+    // Наибольшее число сущностей в контексте сохранения при сбросе порции
+    private final AtomicInteger maxManagedEntities = new AtomicInteger();
+    private volatile boolean recording;
+
+    @BeforeEach
+    void registerFlushListener() {
+        // Слушатель добавляется в фабрику сессий общего контекста тестов, поэтому включается флагом
+        FlushEventListener listener = event -> {
+            if (recording) {
+                maxManagedEntities.accumulateAndGet(
+                        event.getSession().getPersistenceContextInternal().getNumberOfManagedEntities(), Math::max);
+            }
+        };
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .requireService(EventListenerRegistry.class).appendListeners(EventType.FLUSH, listener);
+    }
+
+    @AfterEach
+    void stopRecording() {
+        recording = false;
+    }
+
+    @Test
+    void heapAndPersistenceContextStayBounded() throws Exception {
+        generateCatalog();
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedAfterGc(memory);
+        AtomicLong peak = new AtomicLong(baseline);
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak.accumulateAndGet(usedAfterGc(memory), Math::max);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "heap-sampler");
+
+        recording = true;
+        sampler.start();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.execute("TRUNCATE TABLE book_styles, authorships, books, authors, styles, " +
+                        "publishing_companies RESTART IDENTITY CASCADE");
+                try {
+                    csvBatchImporter.importAll(dir);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                assertThat(count("books")).isEqualTo(ROWS);
+                assertThat(count("authorships")).isEqualTo(ROWS);
+                assertThat(count("book_styles")).isEqualTo(ROWS);
+                // Импорт только проверяется — тестовая база остаётся прежней
+                status.setRollbackOnly();
+            });
+        } finally {
+            recording = false;
+            sampler.interrupt();
+            sampler.join();
+        }
+
+        long growth = peak.get() - baseline;
+        logger.info("Импорт {} книг: рост памяти {} МБ, контекст сохранения до {} сущностей",
+                ROWS, growth >> 20, maxManagedEntities.get());
+        // Кроме записей порции в контексте — издательства и найденные при записи книг сущности
+        assertThat(maxManagedEntities.get()).isPositive().isLessThanOrEqualTo(chunkSize + PUBLISHERS + STYLES);
+        assertThat(growth).isLessThan(FIXED_HEAP_BYTES + HEAP_BYTES_PER_ROW * ROWS);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    // Файлы в формате экспорта (BOM, запятые, без кавычек); у каждой книги один автор и один жанр
+    private void generateCatalog() throws IOException {
+        try (BufferedWriter out = csv("publishing_companies.csv", "name,establishment_year,contact_info,city")) {
+            for (int i = 0; i < PUBLISHERS; i++) {
+                out.write("Издательство " + i + ",1990-01-01,info" + i + "@example.com,Город " + i % 10 + "\n");
+            }
+        }
+        try (BufferedWriter out = csv("authors.csv", "id,fio,birth_date,country,nickname")) {
+            for (int i = 1; i <= AUTHORS; i++) {
+                out.write(i + ",Автор Номер " + i + ",1970-01-01,Россия,псевдоним" + i + "\n");
+            }
+        }
+        try (BufferedWriter out = csv("styles.csv", "id,name")) {
+            for (int i = 1; i <= STYLES; i++) {
+                out.write(i + ",Жанр " + i + "\n");
+            }
+        }
+        try (BufferedWriter out = csv("books.csv", "isbn,name,publication_year,age_limit,publishing_company," +
+                "page_count,language,cost,count_of_books")) {
+            for (int i = 0; i < ROWS; i++) {
+                out.write(isbn(i) + ",Книга номер " + i + ",2001-02-03,12.0,Издательство " + i % PUBLISHERS +
+                        "," + (100 + i % 500) + ",Русский,199.9," + i % 50 + "\n");
+            }
+        }
+        try (BufferedWriter out = csv("authorships.csv", "book_isbn,author_id,author_order")) {
+            for (int i = 0; i < ROWS; i++) {
+                out.write(isbn(i) + "," + (i % AUTHORS + 1) + ",0\n");
+            }
+        }
+        try (BufferedWriter out = csv("book_styles.csv", "book_isbn,style_id")) {
+            for (int i = 0; i < ROWS; i++) {
+                out.write(isbn(i) + "," + (i % STYLES + 1) + "\n");
+            }
+        }
+    }
+
+    private BufferedWriter csv(String name, String header) throws IOException {
+        BufferedWriter out = Files.newBufferedWriter(dir.resolve(name), StandardCharsets.UTF_8);
+        out.write('\uFEFF');
+        out.write(header + "\n");
+        return out;
+    }
+
+    private static String isbn(int i) {
+        return String.format("978-%09d", i);
+    }
+}
@@ -0,0 +1,32 @@
+package org.application.bookstorage.support;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Конфигурация тестов, проверяющих отправленные в базу запросы: DataSource оборачивается
+ * в {@link StatementRecorder}, а {@link TestCatalog} очищает таблицы каталога между тестами.
+ */
+@TestConfiguration
+public class QueryCountingTestConfig {
+
+    @Bean
+    static BeanPostProcessor statementRecordingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? StatementRecorder.wrap(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    TestCatalog testCatalog(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        return new TestCatalog(jdbcTemplate, entityManagerFactory);
+    }
+}
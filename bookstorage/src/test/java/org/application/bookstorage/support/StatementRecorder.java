@@ -0,0 +1,98 @@
+package org.application.bookstorage.support;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Запоминает SQL-операторы, подготовленные потоком теста, и вызовы set* для их параметров:
+ * обработчики событий каталога в других потоках не учитываются.
+ *
+ * DataSource приложения оборачивается через {@link QueryCountingTestConfig}.
+ */
+public final class StatementRecorder {
+
+    private static final Set<String> PREPARE_METHODS = Set.of("prepareStatement", "prepareCall");
+
+    private static volatile Thread recording;
+    private static final List<RecordedStatement> statements = new ArrayList<>();
+
+    private StatementRecorder() {
+    }
+
+    /**
+     * Оператор, подготовленный потоком теста. Для createStatement SQL до выполнения неизвестен — sql равен null.
+     */
+    public record RecordedStatement(String sql, List<Object[]> parameters) {
+
+        /**
+         * Повторяет на другом операторе запомненные вызовы set* для параметров.
+         */
+        public void bindTo(PreparedStatement target) throws Throwable {
+            for (Object[] parameter : parameters) {
+                invoke(target, (Method) parameter[0], (Object[]) parameter[1]);
+            }
+        }
+    }
+
+    public static void start() {
+        statements.clear();
+        recording = Thread.currentThread();
+    }
+
+    public static List<RecordedStatement> stop() {
+        recording = null;
+        return new ArrayList<>(statements);
+    }
+
+    static DataSource wrap(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    return result instanceof Connection connection ? wrap(connection) : result;
+                });
+    }
+
+    private static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (recording != Thread.currentThread()) {
+                        return result;
+                    }
+                    if (PREPARE_METHODS.contains(method.getName())) {
+                        RecordedStatement statement = new RecordedStatement((String) args[0], new ArrayList<>());
+                        statements.add(statement);
+                        return wrap((PreparedStatement) result, statement);
+                    }
+                    if (method.getName().equals("createStatement")) {
+                        statements.add(new RecordedStatement(null, List.of()));
+                    }
+                    return result;
+                });
+    }
+
+    private static PreparedStatement wrap(PreparedStatement preparedStatement, RecordedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length > 1 && args[0] instanceof Integer) {
+                        statement.parameters().add(new Object[]{method, args});
+                    }
+                    return invoke(preparedStatement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
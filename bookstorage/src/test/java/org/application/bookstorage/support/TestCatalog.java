@@ -0,0 +1,24 @@
+package org.application.bookstorage.support;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Очистка тестового каталога.
+ */
+@RequiredArgsConstructor
+public class TestCatalog {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Очищает таблицы каталога и кэш второго уровня: загруженные тестом сущности после очистки таблиц устарели.
+     */
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE book_styles, authorships, books, authors, styles, " +
+                "publishing_companies RESTART IDENTITY CASCADE");
+        entityManagerFactory.getCache().evictAll();
+    }
+}